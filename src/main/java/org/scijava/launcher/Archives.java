@@ -38,9 +38,8 @@ import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.Enumeration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -62,18 +61,58 @@ public final class Archives {
 	private static final String TAR_PATTERN = ".*\\.tar(\\.[a-zA-Z0-9]*)?$";
 
 	public static Future<Void> unpack(File file, File destDir, Consumer<String> outputConsumer) {
-		if (file.getName().endsWith(".zip")) return unzip(file, destDir, outputConsumer);
-		else if (file.getName().matches(TAR_PATTERN)) return untar(file, destDir, outputConsumer);
+		return unpack(file, destDir, outputConsumer, null);
+	}
+
+	/**
+	 * Unpacks the given archive, hard-linking unpacked files that are identical
+	 * to files beneath the given folders, rather than keeping separate copies.
+	 * Where hard links are unsupported, files are copied as usual.
+	 *
+	 * @param linkSources Folders whose files may be linked to, e.g. sibling
+	 *          installations, or {@code null} to unpack normally.
+	 */
+	public static Future<Void> unpack(File file, File destDir,
+		Consumer<String> outputConsumer, Collection<Path> linkSources)
+	{
+		return unpack(file, destDir, outputConsumer, linkSources, false);
+	}
+
+	/**
+	 * Unpacks the given archive, as {@link #unpack(File, File, Consumer, Collection)}
+	 * does, optionally keeping an {@link UnpackJournal} in the destination
+	 * folder while unpacking, so that an interrupted attempt can be resumed.
+	 *
+	 * @param resumable Whether to journal the unpacking of ZIP archives.
+	 */
+	static Future<Void> unpack(File file, File destDir,
+		Consumer<String> outputConsumer, Collection<Path> linkSources,
+		boolean resumable)
+	{
+		Deduplicator dedup = linkSources == null || linkSources.isEmpty() ?
+			null : new Deduplicator(linkSources);
+		if (file.getName().endsWith(".zip")) return unzip(file, destDir, outputConsumer, dedup, resumable);
+		else if (file.getName().matches(TAR_PATTERN)) return untar(file, destDir, outputConsumer, dedup);
 		else throw new IllegalArgumentException("Cannot unpack unsupported file: " + file);
 	}
 
 	public static Future<Void> unzip(File file, File destDir, Consumer<String> outputConsumer) {
-		ExecutorService executor = Executors.newSingleThreadExecutor();
-		return executor.submit(() -> {
+		return unzip(file, destDir, outputConsumer, null, false);
+	}
+
+	private static Future<Void> unzip(File file, File destDir,
+		Consumer<String> outputConsumer, Deduplicator dedup, boolean resumable)
+	{
+		return TaskExecutor.submit(() -> {
 			Path destPath = destDir.toPath().normalize();
-			try (ZipFile zipFile = new ZipFile(file)) {
+			try (ZipFile zipFile = new ZipFile(file);
+				UnpackJournal journal = resumable ? new UnpackJournal(destPath) : null)
+			{
 				Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
 				while (zipEntries.hasMoreElements()) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedException("Unzip operation was interrupted");
+					}
 					ZipEntry entry = zipEntries.nextElement();
 					Path entryPath = destPath.resolve(entry.getName()).normalize();
 
@@ -88,23 +127,38 @@ public final class Archives {
 					}
 					else {
 						Files.createDirectories(entryPath.getParent());
-						Files.copy(zipFile.getInputStream(entry), entryPath, StandardCopyOption.REPLACE_EXISTING);
+						// Skip entries unpacked by an earlier, interrupted attempt.
+						long size = entry.getSize(), crc = entry.getCrc();
+						if (journal != null && journal.isDone(entry.getName(), size, crc, entryPath)) continue;
+						// Link to an identical existing file, if any, rather than writing.
+						Path existing = dedup == null ? null : dedup.find(size,
+							crc, () -> zipFile.getInputStream(entry));
+						if (existing == null || !dedup.link(entryPath, existing)) {
+							Files.copy(zipFile.getInputStream(entry), entryPath, StandardCopyOption.REPLACE_EXISTING);
+							if (entry.getTime() != -1) entryPath.toFile().setLastModified(entry.getTime());
+						}
+						if (journal != null) journal.record(entry.getName(), size, crc, entryPath);
 					}
 				}
-			}
-			finally {
-				executor.shutdown();
+				if (journal != null) journal.complete();
 			}
 			return null;
 		});
 	}
 
 	public static Future<Void> untar(File file, File destDir, Consumer<String> outputConsumer) {
-		ExecutorService executor = Executors.newSingleThreadExecutor();
-		return executor.submit(() -> {
+		return untar(file, destDir, outputConsumer, null);
+	}
+
+	private static Future<Void> untar(File file, File destDir,
+		Consumer<String> outputConsumer, Deduplicator dedup)
+	{
+		return TaskExecutor.submit(() -> {
 			Process p = new ProcessBuilder(
 				"tar", "xvf", file.getAbsolutePath(), "-C", destDir.getAbsolutePath()
 			).start();
+			// Stop tar even if cancelled while not waiting for it.
+			TaskExecutor.onCancel(p::destroy);
 
 			StringBuilder errorOutput = new StringBuilder();
 			AtomicBoolean shouldStop = new AtomicBoolean(false);
@@ -133,6 +187,8 @@ public final class Archives {
 				}
 			});
 
+			stdoutThread.setDaemon(true);
+			stderrThread.setDaemon(true);
 			stdoutThread.start();
 			stderrThread.start();
 
@@ -141,6 +197,11 @@ public final class Archives {
 				if (exitCode != 0) {
 					throw new IOException("tar command failed with exit code: " + exitCode + NL + NL + errorOutput);
 				}
+				// NB: tar extracts on its own, so link identical files afterwards.
+				if (dedup != null) dedup.dedupe(destDir.toPath());
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedException("Cancelled");
+				}
 			}
 			catch (InterruptedException e) {
 				shouldStop.set(true);
@@ -163,9 +224,6 @@ public final class Archives {
 				Thread.currentThread().interrupt();
 				throw new IOException("Untar operation was interrupted" + NL + errorOutput, e);
 			}
-			finally {
-				executor.shutdownNow();
-			}
 			return null;
 		});
 	}
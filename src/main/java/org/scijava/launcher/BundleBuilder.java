@@ -0,0 +1,337 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line tool for building offline bundles of Java, for every platform
+ * listed in a java-links file.
+ * <p>
+ * Usage: {@code java -cp app-launcher.jar org.scijava.launcher.BundleBuilder
+ * [--threads N] [--platform P]... <java-links> <output-dir>}
+ * </p>
+ * <p>
+ * The archives of all platforms (or only those given via {@code --platform})
+ * are downloaded concurrently, from the fastest of their mirrors, into the
+ * {@code downloads} folder of the output directory, and unpacked into one
+ * java-root folder per platform, named after the platform, ready to ship as
+ * {@code scijava.app.java-root}. Archives are unpacked via a staging folder
+ * (see {@link StagedUpgrade}), and Java folders of an earlier archive which
+ * the new one supersedes are removed.
+ * </p>
+ * <p>
+ * Interrupted downloads resume where they left off, and running the command
+ * again skips the work already done: the archives' SHA-256 checksums are
+ * recorded in {@code downloads/SHA256SUMS}, in the format of the
+ * {@code sha256sum} tool, and checked on each run. These checksums are for
+ * local integrity only: they are computed from the first download, since
+ * java-links files list no checksums, so they catch archives corrupted or
+ * truncated on disk, not archives tampered with upstream.
+ * </p>
+ */
+public final class BundleBuilder {
+
+	/** Name of the folder within the output directory holding the archives. */
+	static final String DOWNLOADS = "downloads";
+
+	/** Name of the local integrity checksum file within the downloads folder. */
+	static final String CHECKSUMS = "SHA256SUMS";
+
+	/** Name of the marker file recording what was unpacked into a java-root. */
+	static final String MARKER = ".scijava-bundle";
+
+	private static final int DEFAULT_THREADS = 4;
+
+	private final Path outputDir;
+	private final Path downloads;
+	private final Map<String, String> checksums;
+
+	private BundleBuilder(Path outputDir) throws IOException {
+		this.outputDir = outputDir;
+		this.downloads = Files.createDirectories(outputDir.resolve(DOWNLOADS));
+		this.checksums = readChecksums(downloads.resolve(CHECKSUMS));
+	}
+
+	public static void main(String... args) {
+		int threads = DEFAULT_THREADS;
+		List<String> platforms = new ArrayList<>();
+		List<String> positional = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if ("--threads".equals(args[i])) threads = Integer.parseInt(args[++i]);
+				else if ("--platform".equals(args[i])) platforms.add(args[++i]);
+				else positional.add(args[i]);
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException | NumberFormatException exc) {
+			positional.clear();
+		}
+		if (positional.size() != 2 || threads < 1) {
+			System.err.println("Usage: BundleBuilder [--threads N] [--platform P]... " +
+				"<java-links> <output-dir>");
+			System.exit(2);
+		}
+		try {
+			Map<String, Path> roots = build(toURL(positional.get(0)),
+				Paths.get(positional.get(1)), platforms, threads);
+			for (Map.Entry<String, Path> entry : roots.entrySet()) {
+				System.out.println(entry.getKey() + ": " + entry.getValue());
+			}
+		}
+		catch (IOException exc) {
+			System.err.println(exc.getMessage());
+			Log.debug(exc);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Downloads and unpacks the Java archives of the given platforms.
+	 *
+	 * @param javaLinks The java-links file listing the archives.
+	 * @param outputDir The folder in which to build the bundle.
+	 * @param platforms The platforms to include, or an empty collection for
+	 *          all of those in the java-links file.
+	 * @param threads The maximum number of platforms to process at once.
+	 * @return The java-root folder of each platform.
+	 * @throws IOException If any platform failed. The others are completed
+	 *           regardless, so that running again retries only the failures.
+	 */
+	public static Map<String, Path> build(URL javaLinks, Path outputDir,
+		Collection<String> platforms, int threads) throws IOException
+	{
+		Map<String, List<String>> links =
+			Java.parseJavaLinks(Downloader.downloadText(javaLinks));
+		if (!platforms.isEmpty()) {
+			for (String platform : platforms) {
+				if (!links.containsKey(platform)) {
+					throw new IOException("No Java download listed for platform: " + platform);
+				}
+			}
+			links.keySet().retainAll(platforms);
+		}
+		BundleBuilder builder = new BundleBuilder(outputDir);
+
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "BundleBuilder-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			Map<String, Future<Path>> results = new LinkedHashMap<>();
+			for (Map.Entry<String, List<String>> entry : links.entrySet()) {
+				results.put(entry.getKey(), executor.submit(() ->
+					builder.platform(entry.getKey(), entry.getValue())));
+			}
+			Map<String, Path> roots = new LinkedHashMap<>();
+			List<String> failures = new ArrayList<>();
+			for (Map.Entry<String, Future<Path>> entry : results.entrySet()) {
+				try {
+					roots.put(entry.getKey(), entry.getValue().get());
+				}
+				catch (ExecutionException exc) {
+					Log.debug(exc);
+					failures.add(entry.getKey() + ": " + exc.getCause().getMessage());
+				}
+				catch (InterruptedException exc) {
+					for (Future<Path> result : results.values()) result.cancel(true);
+					throw new IOException("Interrupted", exc);
+				}
+			}
+			if (!failures.isEmpty()) {
+				throw new IOException("Failed to bundle Java for " + failures.size() +
+					" platform(s):" + System.lineSeparator() +
+					String.join(System.lineSeparator(), failures));
+			}
+			return roots;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Downloads and unpacks the Java archive of one platform. */
+	private Path platform(String platform, List<String> javaLinks)
+		throws IOException, InterruptedException, ExecutionException
+	{
+		List<URL> mirrors = new ArrayList<>();
+		for (String link : javaLinks) mirrors.add(new URL(link));
+		String name = archiveName(mirrors.get(0));
+		Path archive = downloads.resolve(name);
+		String sha256 = download(platform, mirrors, archive);
+
+		// Unpack, unless the same archive was unpacked already.
+		// NB: java-roots hold the unpacked archive only; anything else there,
+		// other than hidden files, stems from a superseded archive.
+		Path root = Files.createDirectories(outputDir.resolve(platform));
+		File marker = root.resolve(MARKER).toFile();
+		Map<String, String> unpacked = new LinkedHashMap<>();
+		unpacked.put("archive", name);
+		unpacked.put("sha256", sha256);
+		if (marker.exists() && Config.load(marker).equals(unpacked)) {
+			System.out.println(platform + ": already unpacked " + name);
+			return root;
+		}
+		System.out.println(platform + ": unpacking " + name);
+		marker.delete();
+		List<Path> installed = StagedUpgrade.unpack(archive.toFile(), sha256, root, null);
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+			for (Path entry : entries) {
+				if (installed.contains(entry) || entry.getFileName().toString().startsWith(".")) continue;
+				System.out.println(platform + ": removing superseded " + entry.getFileName());
+				StagedUpgrade.delete(entry.toFile());
+			}
+		}
+		Config.save(marker, unpacked);
+		return root;
+	}
+
+	/**
+	 * Downloads the given archive, unless already there with the recorded
+	 * checksum.
+	 *
+	 * @return The archive's SHA-256 checksum.
+	 */
+	private String download(String platform, List<URL> mirrors, Path archive)
+		throws IOException, InterruptedException, ExecutionException
+	{
+		String name = archive.getFileName().toString();
+		if (Files.exists(archive)) {
+			// NB: Archives get their final name only once downloaded in full.
+			String sha256 = DownloadCache.sha256(archive.toFile());
+			String expected = checksum(name);
+			if (expected == null || expected.equals(sha256)) {
+				System.out.println(platform + ": already downloaded " + name);
+				if (expected == null) recordChecksum(name, sha256);
+				return sha256;
+			}
+			System.out.println(platform + ": checksum mismatch; downloading " + name + " again");
+			Files.deleteIfExists(archive);
+		}
+
+		// Download into a partial file, continuing any earlier attempt.
+		// NB: Platforms may share an archive; each downloads its own copy.
+		Path part = archive.resolveSibling(name + "." + platform + ".part");
+		System.out.println(platform + ": downloading " + name);
+		DownloadProgress[] last = {null};
+		await(Downloader.resume(mirrors, part.toFile(), p -> last[0] = p));
+		System.out.println(platform + ": downloaded " + name + " (" + last[0] + ")");
+		String sha256 = DownloadCache.sha256(part.toFile());
+		try {
+			Files.move(part, archive, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException exc) {
+			Files.move(part, archive, StandardCopyOption.REPLACE_EXISTING);
+		}
+		recordChecksum(name, sha256);
+		return sha256;
+	}
+
+	/** Waits for the given task, cancelling it if interrupted. */
+	private static <T> T await(Future<T> task)
+		throws InterruptedException, ExecutionException
+	{
+		try {
+			return task.get();
+		}
+		catch (InterruptedException exc) {
+			task.cancel(true);
+			throw exc;
+		}
+	}
+
+	private synchronized String checksum(String name) {
+		return checksums.get(name);
+	}
+
+	/** Records an archive's checksum, rewriting the checksum file. */
+	private synchronized void recordChecksum(String name, String sha256)
+		throws IOException
+	{
+		checksums.put(name, sha256);
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, String> entry : checksums.entrySet()) {
+			lines.add(entry.getValue() + "  " + entry.getKey());
+		}
+		Path file = downloads.resolve(CHECKSUMS);
+		Path tmp = file.resolveSibling(CHECKSUMS + ".tmp");
+		Files.write(tmp, lines);
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/** Reads a checksum file, in the format of the sha256sum tool. */
+	private static Map<String, String> readChecksums(Path file) throws IOException {
+		Map<String, String> checksums = new LinkedHashMap<>();
+		if (!Files.exists(file)) return checksums;
+		for (String line : Files.readAllLines(file)) {
+			String[] tokens = line.trim().split("\\s+\\*?", 2);
+			if (tokens.length == 2) checksums.put(tokens[1], tokens[0]);
+		}
+		return checksums;
+	}
+
+	/** Gets the file name of the archive at the given URL. */
+	private static String archiveName(URL url) throws IOException {
+		String path = url.getPath();
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		if (name.isEmpty() || !(name.endsWith(".zip") || name.matches(".*\\.tar(\\.[a-zA-Z0-9]*)?$"))) {
+			throw new IOException("Unsupported archive: " + url);
+		}
+		return name;
+	}
+
+	private static URL toURL(String location) throws MalformedURLException {
+		return location.contains("://") ? new URL(location) :
+			new File(location).toURI().toURL();
+	}
+}
@@ -0,0 +1,628 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small HTTP server sharing Java downloads within a local network.
+ * <p>
+ * Usage: {@code java -cp app-launcher.jar org.scijava.launcher.CacheServer
+ * [--port N] [--bind ADDRESS] [--url URL] <java-links>}
+ * </p>
+ * <p>
+ * The server listens on the loopback address only, unless given an address
+ * to bind, e.g. {@code --bind 0.0.0.0} to serve the whole local network.
+ * The links it hands out point at the given public URL, e.g.
+ * {@code --url http://cache.example.lan:8088}; without one, at the address on
+ * which the client reached the server. Clients' {@code Host} headers are
+ * never trusted for this.
+ * </p>
+ * <p>
+ * The server offers the given java-links file at {@code /java-links.txt},
+ * with each platform's links rewritten to point at the server itself. The
+ * first request for an archive downloads it from the original links into
+ * the user-level download cache (see {@link DownloadCache}), and all requests
+ * are then served from there, so each archive crosses the wide area network
+ * only once, however many machines point their {@code scijava.app.java-links}
+ * at the server. Archives are served with support for range requests, so
+ * interrupted downloads resume, and mirror racing works against the server.
+ * While an archive is still being downloaded, requests for it are served as
+ * it arrives, so clients see the download progress, rather than waiting for
+ * it to complete. Only archives themselves are served; requests for anything
+ * else, such as the manifests used for delta upgrades (see
+ * {@link JavaDelta}), are answered with 404, so that clients fall back to
+ * downloading whole archives.
+ * </p>
+ * <p>
+ * Requests for unknown archives refresh the upstream java-links file, in
+ * case it changed, but at most once per {@link #MIN_REFRESH_MILLIS}.
+ * </p>
+ * <p>
+ * Only clients with loopback, link-local or site-local addresses are served.
+ * </p>
+ */
+public final class CacheServer {
+
+	/** Port on which the server listens by default. */
+	static final int DEFAULT_PORT = 8088;
+
+	/** Path at which the rewritten java-links file is served. */
+	static final String LINKS_PATH = "/java-links.txt";
+
+	/** Path prefix under which archives are served. */
+	static final String ARCHIVES_PATH = "/archives/";
+
+	/** How long the upstream java-links file is reused before refetching. */
+	private static final long LINKS_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	/** Minimum time between two fetches of the upstream java-links file. */
+	static final long MIN_REFRESH_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private static final int THREADS = 16;
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+	private final URL javaLinks;
+	private final URL publicURL;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/** Mirrors of each archive, by archive key. */
+	private final Map<String, List<URL>> archives = new ConcurrentHashMap<>();
+
+	/** Archives in the cache or on their way there, by archive key. */
+	private final Map<String, Fetch> fetches = new ConcurrentHashMap<>();
+
+	/** Locks held while fetching archives, by archive key. */
+	private final Map<String, Object> fetchLocks = new ConcurrentHashMap<>();
+
+	private List<String> links;
+	private long linksTime;
+	private long fetchTime;
+
+	private CacheServer(URL javaLinks, InetSocketAddress address, URL publicURL)
+		throws IOException
+	{
+		this.javaLinks = javaLinks;
+		this.publicURL = publicURL;
+		server = HttpServer.create(address, 0);
+		AtomicInteger count = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(THREADS, r -> {
+			Thread t = new Thread(r, "CacheServer-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+	}
+
+	/**
+	 * Starts serving the given java-links file, and the archives it lists.
+	 *
+	 * @param javaLinks The upstream java-links file.
+	 * @param address The address on which to listen.
+	 * @return The running server.
+	 */
+	public static CacheServer start(URL javaLinks, InetSocketAddress address)
+		throws IOException
+	{
+		return start(javaLinks, address, null);
+	}
+
+	/**
+	 * Starts serving the given java-links file, and the archives it lists.
+	 *
+	 * @param javaLinks The upstream java-links file.
+	 * @param address The address on which to listen.
+	 * @param publicURL The URL at which clients reach the server, or
+	 *          {@code null} to use the address on which each client reached it.
+	 * @return The running server.
+	 */
+	public static CacheServer start(URL javaLinks, InetSocketAddress address,
+		URL publicURL) throws IOException
+	{
+		CacheServer cacheServer = new CacheServer(javaLinks, address, publicURL);
+		cacheServer.server.start();
+		Log.debug("Serving " + javaLinks + " on " + cacheServer.server.getAddress());
+		return cacheServer;
+	}
+
+	/** Gets the port on which the server listens. */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/** Stops the server. */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+		for (Fetch fetch : fetches.values()) {
+			if (fetch.download != null) fetch.download.cancel(true);
+		}
+	}
+
+	public static void main(String... args) throws InterruptedException {
+		int port = DEFAULT_PORT;
+		String bind = null;
+		String url = null;
+		List<String> positional = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if ("--port".equals(args[i])) port = Integer.parseInt(args[++i]);
+				else if ("--bind".equals(args[i])) bind = args[++i];
+				else if ("--url".equals(args[i])) url = args[++i];
+				else positional.add(args[i]);
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException | NumberFormatException exc) {
+			positional.clear();
+		}
+		if (positional.size() != 1) {
+			System.err.println("Usage: CacheServer [--port N] [--bind ADDRESS] " +
+				"[--url URL] <java-links>");
+			System.exit(2);
+		}
+		try {
+			InetSocketAddress address = bind == null ?
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port) :
+				new InetSocketAddress(bind, port);
+			URL publicURL = url == null ? null : new URL(url);
+			CacheServer cacheServer = start(toURL(positional.get(0)), address, publicURL);
+			System.out.println("Serving Java downloads at " +
+				cacheServer.base(cacheServer.server.getAddress()) + LINKS_PATH);
+		}
+		catch (IOException exc) {
+			System.err.println(exc.getMessage());
+			Log.debug(exc);
+			System.exit(1);
+		}
+		// NB: The server's threads are daemons; keep the JVM alive.
+		new CountDownLatch(1).await();
+	}
+
+	// -- Helper methods --
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			InetAddress client = exchange.getRemoteAddress().getAddress();
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath();
+			if (!isLocal(client)) {
+				send(exchange, 403, "Forbidden");
+			}
+			else if (!"GET".equals(method) && !"HEAD".equals(method)) {
+				send(exchange, 405, "Method not allowed");
+			}
+			else if (LINKS_PATH.equals(path)) {
+				serveLinks(exchange);
+			}
+			else if (path.startsWith(ARCHIVES_PATH)) {
+				serveArchive(exchange, path.substring(ARCHIVES_PATH.length()));
+			}
+			else send(exchange, 404, "Not found");
+		}
+		catch (IOException | RuntimeException exc) {
+			Log.debug(exc);
+			throw exc;
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	/** Serves the java-links file, with links pointing at this server. */
+	private void serveLinks(HttpExchange exchange) throws IOException {
+		String base = base(exchange.getLocalAddress()) + ARCHIVES_PATH;
+		List<String> lines = links();
+		Map<String, List<String>> platforms = Java.parseJavaLinks(lines);
+		Set<String> written = new HashSet<>();
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			int equals = line.indexOf('=');
+			String platform = equals < 0 ? null : line.substring(0, equals);
+			List<String> mirrors = platforms.get(platform);
+			if (mirrors == null) sb.append(line).append('\n');
+			else if (written.add(platform)) {
+				// NB: All of the platform's mirrors collapse into this server.
+				sb.append(platform).append('=').append(base).append(key(mirrors))
+					.append('/').append(archiveName(mirrors.get(0))).append('\n');
+			}
+		}
+		send(exchange, 200, sb.toString());
+	}
+
+	/**
+	 * Serves the archive with the given key, fetching it first if needed. While
+	 * the archive is still being fetched, it is streamed to the client as it
+	 * arrives from upstream.
+	 */
+	private void serveArchive(HttpExchange exchange, String rest) throws IOException {
+		int slash = rest.indexOf('/');
+		String key = slash < 0 ? rest : rest.substring(0, slash);
+		if (!archives.containsKey(key)) links(true); // Maybe the links changed.
+		List<URL> mirrors = archives.get(key);
+		// NB: Only the archive itself is served, not e.g. its delta manifest.
+		if (mirrors == null || !rest.equals(key + "/" + archiveName(mirrors.get(0)))) {
+			send(exchange, 404, "Not found");
+			return;
+		}
+		Fetch fetch;
+		long length;
+		try {
+			fetch = fetch(key, mirrors);
+			length = fetch.awaitLength();
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			send(exchange, 502, "Download failed: " + exc.getMessage());
+			return;
+		}
+
+		// NB: Ranges of an archive of yet unknown length are not served.
+		long start = 0, end = length - 1;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		Matcher m = range == null || length < 0 ? null : RANGE.matcher(range.trim());
+		boolean partial = m != null && m.matches() &&
+			!(m.group(1).isEmpty() && m.group(2).isEmpty());
+		if (partial) {
+			if (m.group(1).isEmpty()) {
+				// Suffix range: the last N bytes.
+				start = Math.max(0, length - Long.parseLong(m.group(2)));
+			}
+			else {
+				start = Long.parseLong(m.group(1));
+				if (!m.group(2).isEmpty()) end = Math.min(end, Long.parseLong(m.group(2)));
+			}
+			if (start >= length || start > end) {
+				exchange.getResponseHeaders().add("Content-Range", "bytes */" + length);
+				send(exchange, 416, "Range not satisfiable");
+				return;
+			}
+			exchange.getResponseHeaders().add("Content-Range",
+				"bytes " + start + "-" + end + "/" + length);
+		}
+		long count = length < 0 ? -1 : end - start + 1;
+		if (length >= 0) exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+		exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+		int code = partial ? 206 : 200;
+		if ("HEAD".equals(exchange.getRequestMethod())) {
+			if (count >= 0) {
+				exchange.getResponseHeaders().add("Content-Length", String.valueOf(count));
+			}
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		// NB: A length of 0 means chunked encoding, for content of unknown length.
+		exchange.sendResponseHeaders(code, count < 0 ? 0 : count);
+		try (
+			FileChannel in = fetch.open();
+			OutputStream body = exchange.getResponseBody()
+		) {
+			WritableByteChannel out = Channels.newChannel(body);
+			long done = 0;
+			while (count < 0 || done < count) {
+				long available = fetch.await(start + done);
+				if (available <= start + done) break; // The archive is complete.
+				long limit = count < 0 ? available : Math.min(available, start + count);
+				long n = in.transferTo(start + done, limit - start - done, out);
+				if (n <= 0 && fetch.isDone()) break;
+				done += n;
+			}
+			if (count >= 0 && done < count) {
+				throw new IOException("Archive " + key + " ended early: " + done + "/" + count);
+			}
+		}
+		catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted");
+		}
+	}
+
+	/**
+	 * Gets the archive with the given key from the cache, starting to download
+	 * it there first if needed. Concurrent requests for the same archive share
+	 * a single download.
+	 */
+	private Fetch fetch(String key, List<URL> mirrors) throws IOException {
+		Fetch fetch = fetches.get(key);
+		if (fetch != null && fetch.isUsable()) return fetch;
+		synchronized (fetchLocks.computeIfAbsent(key, k -> new Object())) {
+			fetch = fetches.get(key);
+			if (fetch != null && fetch.isUsable()) return fetch;
+			URL url = mirrors.get(0);
+			File file = DownloadCache.get(url);
+			if (file != null) fetch = new Fetch(file, true);
+			else {
+				String name = archiveName(url);
+				int dot = name.endsWith(".zip") ? name.lastIndexOf('.') :
+					name.lastIndexOf(".tar");
+				String suffix = dot < 0 ? null : name.substring(dot);
+				File tmp = Files.createTempFile(CacheServer.class.getName() + "-", suffix).toFile();
+				tmp.deleteOnExit();
+				Log.debug("Fetching " + url);
+				Fetch pending = fetch = new Fetch(tmp, false);
+				DownloadProgress[] last = {null};
+				RateLimiter limiter = RateLimiter.current();
+				// NB: Unlike Downloader, the mirror downloader reports progress
+				// after every read, even from a single mirror, so that requests
+				// streaming the archive never wait for a large chunk.
+				Future<Void> download = TaskExecutor.submit(() -> {
+					new MirrorDownloader(mirrors, tmp, p -> {
+						last[0] = p;
+						pending.progress(p);
+					}, limiter).download();
+					return null;
+				});
+				pending.download = download;
+				Thread thread = new Thread(() -> {
+					try {
+						Java.waitForTask(download);
+						// NB: Keep requests from opening the file while it moves.
+						synchronized (pending) {
+							pending.finish(DownloadCache.put(url, tmp, suffix, last[0]));
+						}
+					}
+					catch (IOException | RuntimeException exc) {
+						Log.debug(exc);
+						tmp.delete();
+						pending.fail(exc);
+					}
+				}, "CacheServer-Fetch-" + key);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			fetches.put(key, fetch);
+			return fetch;
+		}
+	}
+
+	/** Gets the upstream java-links file, refetching it if stale. */
+	private List<String> links() throws IOException {
+		return links(false);
+	}
+
+	/**
+	 * Gets the upstream java-links file, refetching it if stale, or if asked
+	 * to refresh it. Either way, it is fetched at most once per
+	 * {@link #MIN_REFRESH_MILLIS}, so that clients cannot flood upstream.
+	 */
+	private synchronized List<String> links(boolean refresh) throws IOException {
+		long now = System.currentTimeMillis();
+		boolean due = refresh || now - linksTime > LINKS_TTL_MILLIS;
+		if (links == null || due && now - fetchTime >= MIN_REFRESH_MILLIS) {
+			fetchTime = now;
+			try {
+				links = Downloader.downloadText(javaLinks);
+				linksTime = now;
+				for (List<String> mirrors : Java.parseJavaLinks(links).values()) {
+					List<URL> urls = new ArrayList<>();
+					for (String link : mirrors) urls.add(new URL(link));
+					archives.put(key(mirrors), urls);
+				}
+			}
+			catch (IOException exc) {
+				// Keep serving the last known links, if any.
+				if (links == null) throw exc;
+				Log.debug(exc);
+			}
+		}
+		return links;
+	}
+
+	/**
+	 * Gets the base URL at which clients reach this server: the public URL if
+	 * configured, or else the given local address.
+	 */
+	private String base(InetSocketAddress local) {
+		if (publicURL != null) {
+			String url = publicURL.toString();
+			return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		}
+		InetAddress address = local.getAddress();
+		String host = address.isAnyLocalAddress() ? "<this-host>" :
+			address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" :
+			address.getHostAddress();
+		return "http://" + host + ":" + local.getPort();
+	}
+
+	/** Gets the key identifying an archive, from its canonical link. */
+	private static String key(List<String> mirrors) {
+		return DownloadCache.sha256(mirrors.get(0)).substring(0, 16);
+	}
+
+	private static String archiveName(String link) throws MalformedURLException {
+		return archiveName(new URL(link));
+	}
+
+	private static String archiveName(URL url) {
+		String path = url.getPath();
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		return name.isEmpty() ? "archive" : name;
+	}
+
+	/** Gets whether the given client address belongs to the local network. */
+	static boolean isLocal(InetAddress address) {
+		if (address.isLoopbackAddress() || address.isLinkLocalAddress() ||
+			address.isSiteLocalAddress())
+		{
+			return true;
+		}
+		// IPv6 unique local addresses (fc00::/7).
+		return address instanceof Inet6Address &&
+			(address.getAddress()[0] & 0xfe) == 0xfc;
+	}
+
+	private static void send(HttpExchange exchange, int code, String body)
+		throws IOException
+	{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+		if ("HEAD".equals(exchange.getRequestMethod())) {
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static URL toURL(String location) throws MalformedURLException {
+		return location.contains("://") ? new URL(location) :
+			new File(location).toURI().toURL();
+	}
+
+	/**
+	 * An archive in the cache, or on its way there. Until its download
+	 * completes, the archive can be served from its temporary file, up to the
+	 * number of bytes downloaded thus far.
+	 */
+	private static class Fetch {
+
+		private volatile Future<Void> download;
+		private File file;
+		private boolean started;
+		private boolean done;
+		private long bytes;
+		private long total = -1;
+		private Exception failure;
+
+		Fetch(File file, boolean done) {
+			this.file = file;
+			this.done = this.started = done;
+			if (done) bytes = total = file.length();
+		}
+
+		/** Records the download's progress, waking up waiting requests. */
+		synchronized void progress(DownloadProgress progress) {
+			// NB: Mirrors serve identical content; a restarted download merely
+			// makes requests wait until the bytes they need are there again.
+			started = true;
+			bytes = progress.bytes();
+			total = progress.total();
+			notifyAll();
+		}
+
+		/** Records that the download completed into the given cached file. */
+		synchronized void finish(File cachedFile) {
+			file = cachedFile;
+			bytes = total = cachedFile.length();
+			started = done = true;
+			notifyAll();
+		}
+
+		/** Records that the download failed. */
+		synchronized void fail(Exception exc) {
+			failure = exc;
+			notifyAll();
+		}
+
+		synchronized boolean isDone() {
+			return done;
+		}
+
+		/** Gets whether the archive can still be served. */
+		synchronized boolean isUsable() {
+			return failure == null && (!done || file.isFile());
+		}
+
+		/**
+		 * Waits until the download has started, then gets the archive's length.
+		 *
+		 * @return The length in bytes, or -1 if not known until it completes.
+		 */
+		synchronized long awaitLength() throws IOException {
+			try {
+				while (!started && failure == null) wait();
+			}
+			catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted");
+			}
+			if (failure != null) throw new IOException(failure.getMessage(), failure);
+			return total;
+		}
+
+		/**
+		 * Waits until the archive has more bytes than the given position, or is
+		 * complete.
+		 *
+		 * @return The number of bytes available.
+		 * @throws IOException If the download failed.
+		 */
+		synchronized long await(long position) throws IOException,
+			InterruptedException
+		{
+			while (!done && bytes <= position && failure == null) wait();
+			if (failure != null) throw new IOException(failure.getMessage(), failure);
+			return bytes;
+		}
+
+		/**
+		 * Opens the archive for reading. The channel stays valid even once a
+		 * completed download moves into the cache.
+		 */
+		synchronized FileChannel open() throws IOException {
+			return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+	}
+}
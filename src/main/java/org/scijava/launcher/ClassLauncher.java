@@ -55,6 +55,8 @@ import java.util.Arrays;
  */
 public class ClassLauncher {
 
+	private static String[] launchArgs = {};
+
 	public static String appName() { return appName(null); }
 
 	public static String appName(String fallback) {
@@ -76,16 +78,30 @@ public class ClassLauncher {
 		return null;
 	}
 
+	/** Gets the arguments with which the launcher was invoked. */
+	static String[] args() {
+		return launchArgs.clone();
+	}
+
 	public static void main(final String... args) {
+		launchArgs = args.clone();
+		// NB: When headless, avoid touching any UI classes, so that
+		// nothing from the java.desktop module gets loaded at all.
+		boolean headless = Java.isHeadless();
+		if (!headless && Boolean.getBoolean("scijava.app.ui-warmup")) {
+			LookAndFeel.warmup();
+		}
 		if (Boolean.getBoolean("scijava.app.unlock-modules")) {
 			ReflectionUnlocker.unlockAll();
 		}
 		if (SingleInstance.tryHandoff(args)) System.exit(0);
-		tryToRun(Splash::show);
+		if (!headless) tryToRun(Splash::show);
+		String mainClass = mainClass(args);
+		if (mainClass != null) tryToRun(() -> Java.preflight(mainClass));
 		tryToRun(Java::check);
 		String appName = appName();
 		appName = appName == null ? "" : " " + appName;
-		Splash.update("Launching" + appName + "...");
+		if (!headless) Splash.update("Launching" + appName + "...");
 		run(args);
 	}
 
@@ -127,6 +143,14 @@ public class ClassLauncher {
 		}
 	}
 
+	/** Gets the main class argument, or {@code null} if there is none. */
+	private static String mainClass(String[] args) {
+		for (String arg : args) {
+			if (!arg.startsWith("-")) return arg;
+		}
+		return null;
+	}
+
 	private static String[] slice(final String[] array, final int from) {
 		return slice(array, from, array.length);
 	}
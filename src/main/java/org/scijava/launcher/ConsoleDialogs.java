@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Console counterpart of {@link Dialogs}, used when running headless.
+ * <p>
+ * This class deliberately avoids any reference to AWT or Swing, so that a
+ * headless launch never loads classes from the {@code java.desktop} module.
+ * When no interactive console is attached (e.g. a batch job on a cluster),
+ * prompts are answered with their default choice instead of blocking.
+ * </p>
+ */
+final class ConsoleDialogs {
+
+	private ConsoleDialogs() { }
+
+	private static BufferedReader in;
+
+	/**
+	 * Asks the given question on the console.
+	 *
+	 * @see Dialogs#ask
+	 */
+	static Dialogs.Result ask(String message, String yes, String no, String never) {
+		List<String> options = new ArrayList<>();
+		if (yes != null) options.add(yes);
+		if (no != null) options.add(no);
+		if (never != null) options.add(never);
+		if (options.isEmpty()) {
+			throw new IllegalArgumentException(
+				"At least one of yes, no, or never must be non-null");
+		}
+		String initial = no == null ? options.get(0) : no;
+
+		System.out.println(plainText(message));
+		if (options.size() == 1) {
+			// Nothing to choose; just acknowledge the message.
+			return result(initial, yes, no);
+		}
+		if (System.console() == null) {
+			// Non-interactive session; do not wait for an answer.
+			System.out.println("Non-interactive session; choosing: " + initial);
+			return result(initial, yes, no);
+		}
+
+		while (true) {
+			for (int i = 0; i < options.size(); i++) {
+				System.out.println("  [" + (i + 1) + "] " + options.get(i) +
+					(options.get(i).equals(initial) ? " (default)" : ""));
+			}
+			System.out.print("Choice: ");
+			System.out.flush();
+			String line;
+			try {
+				line = reader().readLine();
+			}
+			catch (IOException e) {
+				Log.debug(e);
+				return Dialogs.Result.CANCELED;
+			}
+			if (line == null) return Dialogs.Result.CANCELED;
+			line = line.trim();
+			if (line.isEmpty()) return result(initial, yes, no);
+			for (int i = 0; i < options.size(); i++) {
+				String option = options.get(i);
+				if (line.equals("" + (i + 1)) || line.equalsIgnoreCase(option)) {
+					return result(option, yes, no);
+				}
+			}
+			System.out.println("Invalid choice: " + line);
+		}
+	}
+
+	/** Converts the given HTML dialog message to plain console text. */
+	static String plainText(String message) {
+		return message
+			.replaceAll("(?i)<br\\s*/?>", "\n")
+			.replaceAll("(?i)<li>", "\n  * ")
+			.replaceAll("(?i)</p>|</ul>", "\n")
+			.replaceAll("<[^>]*>", "")
+			.replace("&lt;", "<")
+			.replace("&gt;", ">")
+			.replace("&amp;", "&")
+			.replaceAll("\n{3,}", "\n\n")
+			.trim();
+	}
+
+	private static Dialogs.Result result(String choice, String yes, String no) {
+		if (choice.equals(yes)) return Dialogs.Result.YES;
+		if (choice.equals(no)) return Dialogs.Result.NO;
+		return Dialogs.Result.NEVER;
+	}
+
+	private static synchronized BufferedReader reader() {
+		if (in == null) in = new BufferedReader(new InputStreamReader(System.in));
+		return in;
+	}
+}
@@ -0,0 +1,237 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Replaces files with hard links to identical files in other folders, e.g.
+ * files of a newly unpacked Java with those of sibling Java installations,
+ * which mostly agree byte for byte between patch releases.
+ * <p>
+ * Candidates are found by size and CRC-32 checksum, and confirmed by comparing
+ * content, so only truly identical files are ever linked. Where hard links
+ * are unsupported, e.g. across file systems, files are simply left as copies.
+ * Since linked files share their content, this is only suitable for files
+ * that are never modified in place, as is the case for Java installations.
+ * </p>
+ */
+final class Deduplicator {
+
+	@FunctionalInterface
+	interface Content {
+		InputStream open() throws IOException;
+	}
+
+	private final Collection<Path> sources;
+
+	/** Candidate files by size, indexed lazily. */
+	private Map<Long, List<Path>> bySize;
+
+	/** Already computed checksums of candidate files. */
+	private final Map<Path, Long> checksums = new HashMap<>();
+
+	private boolean linksSupported = true;
+
+	/**
+	 * @param sources Folders whose files may be linked to.
+	 */
+	Deduplicator(Collection<Path> sources) {
+		this.sources = sources;
+	}
+
+	/**
+	 * Finds a file among the sources with the given content.
+	 *
+	 * @param size The content's size in bytes.
+	 * @param crc The content's CRC-32 checksum.
+	 * @param content Provider of the content, for comparison.
+	 * @return A file with identical content, or {@code null} if none.
+	 */
+	Path find(long size, long crc, Content content) throws IOException {
+		if (!linksSupported || size <= 0) return null;
+		List<Path> candidates = candidates().getOrDefault(size, Collections.emptyList());
+		for (Path candidate : candidates) {
+			if (checksum(candidate) != crc) continue;
+			try (InputStream in = content.open()) {
+				if (sameContent(in, candidate)) return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the given file, which need not exist yet, with a hard link to
+	 * the given existing file.
+	 *
+	 * @return {@code true} if linked; {@code false} if hard links are
+	 *          unsupported here, in which case the file is left as is.
+	 */
+	boolean link(Path file, Path existing) {
+		if (!linksSupported) return false;
+		Path tmp = file.resolveSibling(file.getFileName() + ".link");
+		try {
+			Files.deleteIfExists(tmp);
+			Files.createLink(tmp, existing);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		}
+		catch (IOException | UnsupportedOperationException | SecurityException exc) {
+			Log.debug("Hard links unavailable; keeping copies: " + exc);
+			linksSupported = false;
+			try {
+				Files.deleteIfExists(tmp);
+			}
+			catch (IOException e) {
+				Log.debug(e);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Replaces all files beneath the given folder that have identical
+	 * counterparts among the sources with hard links to them.
+	 *
+	 * @return The number of files linked.
+	 */
+	int dedupe(Path dir) throws IOException {
+		int[] linked = {0};
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs) {
+				// Leave the sources themselves alone.
+				return sources.contains(subdir) ?
+					FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+				throws IOException
+			{
+				if (!attrs.isRegularFile() || !candidates().containsKey(attrs.size())) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path existing = find(attrs.size(), crc(file), () -> Files.newInputStream(file));
+				if (existing != null && Files.isExecutable(existing) == Files.isExecutable(file) &&
+					link(file, existing))
+				{
+					linked[0]++;
+				}
+				return linksSupported ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+			}
+		});
+		return linked[0];
+	}
+
+	// -- Helper methods --
+
+	private Map<Long, List<Path>> candidates() throws IOException {
+		if (bySize != null) return bySize;
+		bySize = new HashMap<>();
+		for (Path source : sources) {
+			if (!Files.isDirectory(source)) continue;
+			Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && attrs.size() > 0) {
+						bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		return bySize;
+	}
+
+	private long checksum(Path file) throws IOException {
+		Long crc = checksums.get(file);
+		if (crc == null) {
+			crc = crc(file);
+			checksums.put(file, crc);
+		}
+		return crc;
+	}
+
+	private static long crc(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file)) {
+			int r;
+			while ((r = in.read(buf)) > 0) crc.update(buf, 0, r);
+		}
+		return crc.getValue();
+	}
+
+	private static boolean sameContent(InputStream in, Path file) throws IOException {
+		byte[] bufA = new byte[64 * 1024];
+		byte[] bufB = new byte[bufA.length];
+		try (InputStream a = in; InputStream b = Files.newInputStream(file)) {
+			while (true) {
+				int countA = readFully(a, bufA);
+				int countB = readFully(b, bufB);
+				if (countA != countB) return false;
+				for (int i = 0; i < countA; i++) {
+					if (bufA[i] != bufB[i]) return false;
+				}
+				if (countA < bufA.length) return true;
+			}
+		}
+	}
+
+	private static int readFully(InputStream in, byte[] buf) throws IOException {
+		int count = 0;
+		int r;
+		while (count < buf.length && (r = in.read(buf, count, buf.length - count)) > 0) {
+			count += r;
+		}
+		return count;
+	}
+}
@@ -41,6 +41,9 @@ import java.util.concurrent.ExecutionException;
 
 /**
  * Utility class offering dialog-box-related methods.
+ * <p>
+ * When running headless, prompts are delegated to the console instead.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -53,6 +56,7 @@ public final class Dialogs {
 	public static Result ask(Component parent,
 		String message, String yes, String no, String never)
 	{
+		if (Java.isHeadless()) return ConsoleDialogs.ask(message, yes, no, never);
 		LookAndFeel.init();
 		String title = ClassLauncher.appName("SciJava App Launcher");
 		int optionType = JOptionPane.DEFAULT_OPTION;
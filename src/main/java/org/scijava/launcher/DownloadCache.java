@@ -0,0 +1,400 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User-level cache of downloaded archives, shared by all applications using
+ * the launcher, so that a Java downloaded by one of them need not be
+ * downloaded again by the others.
+ * <p>
+ * Archives are stored by the SHA-256 digest of their content. For each URL, a
+ * small entry file, named after the digest of the URL, records which archive
+ * was downloaded from it, along with its size and the {@code ETag} and
+ * {@code Last-Modified} headers the server sent for it. Before an archive is
+ * reused, its size is checked, and the server is asked via a conditional
+ * request whether the URL still serves the same content; a URL pointing at a
+ * moving "latest" release thus gets downloaded anew once it moves on. If the
+ * server cannot be reached, the cached archive is used regardless. Using an
+ * archive refreshes its modification time, and when the cache outgrows its
+ * size budget, the least recently used archives are evicted.
+ * </p>
+ * <p>
+ * The cache folder is given by the {@code scijava.app.download-cache} system
+ * property, defaulting to a {@code scijava/downloads} folder in the user's
+ * cache directory; setting it to the empty string disables the cache. The
+ * {@code scijava.app.download-cache-size} system property gives the size
+ * budget in megabytes.
+ * </p>
+ */
+final class DownloadCache {
+
+	/** Default size budget, in megabytes. */
+	private static final long DEFAULT_SIZE_MB = 2048;
+
+	private static final String ENTRY_SUFFIX = ".entry";
+	private static final String BLOB_PREFIX = "sha256-";
+
+	private DownloadCache() { }
+
+	/**
+	 * Gets the cache folder, or {@code null} if the cache is disabled.
+	 */
+	static Path dir() {
+		String dir = System.getProperty("scijava.app.download-cache");
+		if (dir != null) return dir.isEmpty() ? null : Paths.get(dir);
+		String base = System.getenv("LOCALAPPDATA"); // Windows
+		if (base == null && System.getProperty("os.name", "").startsWith("Mac")) {
+			base = Paths.get(System.getProperty("user.home"), "Library", "Caches").toString();
+		}
+		if (base == null) base = System.getenv("XDG_CACHE_HOME");
+		if (base == null) {
+			String home = System.getProperty("user.home");
+			if (home == null) return null;
+			base = Paths.get(home, ".cache").toString();
+		}
+		return Paths.get(base, "scijava", "downloads");
+	}
+
+	/** Gets the size budget of the cache, in bytes. */
+	static long maxBytes() {
+		String size = System.getProperty("scijava.app.download-cache-size");
+		long mb = DEFAULT_SIZE_MB;
+		if (size != null) {
+			try {
+				mb = Long.parseLong(size.trim());
+			}
+			catch (NumberFormatException exc) {
+				Log.debug(exc);
+			}
+		}
+		return mb * 1024 * 1024;
+	}
+
+	/**
+	 * Gets the cached content previously downloaded from the given URL.
+	 *
+	 * @return The cached file, or {@code null} if there is none, if it is
+	 *          corrupt, or if the URL now serves different content.
+	 */
+	static File get(URL url) {
+		Path dir = dir();
+		if (dir == null || !isCacheable(url)) return null;
+		try {
+			Path entryFile = entryFile(dir, url);
+			if (!Files.isRegularFile(entryFile)) return null;
+			Map<String, String> entry = Config.load(entryFile.toFile());
+			String digest = entry.get("sha256");
+			String name = entry.get("file");
+			if (digest == null || name == null || !url.toString().equals(entry.get("url"))) {
+				return null;
+			}
+			File blob = dir.resolve(name).toFile();
+			if (!blob.isFile()) return null;
+			// NB: The blob is named after its digest; its size suffices to
+			// detect truncation. Only entries lacking the size are rehashed.
+			String size = entry.get("size");
+			if (size != null ? !size.equals(String.valueOf(blob.length())) :
+				!digest.equals(sha256(blob)))
+			{
+				Log.debug("Discarding corrupt cached download: " + blob);
+				blob.delete();
+				return null;
+			}
+			if (!isFresh(url, entry)) {
+				Log.debug("Discarding outdated cached download of " + url);
+				Files.deleteIfExists(entryFile);
+				return null;
+			}
+			// Mark as recently used.
+			blob.setLastModified(System.currentTimeMillis());
+			Log.debug("Using cached download of " + url + ": " + blob);
+			return blob;
+		}
+		catch (IOException | RuntimeException exc) {
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Moves content freshly downloaded from the given URL into the cache, then
+	 * evicts the least recently used content as needed.
+	 *
+	 * @param url The URL from which the content was downloaded.
+	 * @param file The downloaded content.
+	 * @param suffix File name suffix, e.g. {@code .tar.gz}, to keep for the
+	 *          cached file, or {@code null}.
+	 * @param download The final progress of the download, whose validators
+	 *          are recorded for revalidating the content later, provided it
+	 *          came from the given URL rather than another mirror; or
+	 *          {@code null} if unknown.
+	 * @return The cached file, or the given file if it could not be cached.
+	 * @throws IOException If the content was lost while caching it.
+	 */
+	static File put(URL url, File file, String suffix, DownloadProgress download)
+		throws IOException
+	{
+		Path dir = dir();
+		if (dir == null || !isCacheable(url)) return file;
+		Path blob = null;
+		try {
+			Files.createDirectories(dir);
+			String digest = sha256(file);
+			long size = file.length();
+			String name = BLOB_PREFIX + digest + (suffix == null ? "" : suffix);
+			blob = dir.resolve(name);
+			if (Files.isRegularFile(blob)) {
+				// Identical content is already cached, e.g. from another URL.
+				blob.toFile().setLastModified(System.currentTimeMillis());
+				file.delete();
+			}
+			else move(file.toPath(), blob);
+
+			Map<String, String> entry = new LinkedHashMap<>();
+			entry.put("url", url.toString());
+			entry.put("sha256", digest);
+			entry.put("size", String.valueOf(size));
+			entry.put("file", name);
+			entry.putAll(validators(url, download));
+			Path entryTmp = Files.createTempFile(dir, ".entry-", ".tmp");
+			Config.save(entryTmp.toFile(), entry);
+			move(entryTmp, entryFile(dir, url));
+
+			evict(dir, maxBytes(), blob);
+			return blob.toFile();
+		}
+		catch (IOException | RuntimeException exc) {
+			Log.debug(exc);
+			if (file.exists()) return file;
+			if (blob != null && Files.isRegularFile(blob)) return blob.toFile();
+			throw new IOException("Lost download of " + url + " while caching it", exc);
+		}
+	}
+
+	/**
+	 * Forgets the content downloaded from the given URL, e.g. because it turned
+	 * out to be outdated. The content itself stays cached for other URLs
+	 * serving it, until evicted.
+	 *
+	 * @return Whether there was anything to forget.
+	 */
+	static boolean remove(URL url) {
+		Path dir = dir();
+		if (dir == null || !isCacheable(url)) return false;
+		try {
+			return Files.deleteIfExists(entryFile(dir, url));
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			return false;
+		}
+	}
+
+	/** Gets whether there is an entry for content downloaded from the given URL. */
+	static boolean contains(URL url) {
+		Path dir = dir();
+		return dir != null && isCacheable(url) &&
+			Files.isRegularFile(entryFile(dir, url));
+	}
+
+	/**
+	 * Deletes the least recently used cached content until the cache fits
+	 * within the given size, along with entries referring to deleted content.
+	 *
+	 * @param keep Cached file to retain regardless.
+	 */
+	static void evict(Path dir, long maxBytes, Path keep) throws IOException {
+		List<File> blobs = new ArrayList<>();
+		long total = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, BLOB_PREFIX + "*")) {
+			for (Path path : files) {
+				File blob = path.toFile();
+				blobs.add(blob);
+				total += blob.length();
+			}
+		}
+		if (total <= maxBytes) return;
+
+		blobs.sort(Comparator.comparingLong(File::lastModified));
+		for (File blob : blobs) {
+			if (total <= maxBytes) break;
+			if (blob.toPath().equals(keep)) continue;
+			long length = blob.length();
+			if (blob.delete()) {
+				Log.debug("Evicted cached download: " + blob);
+				total -= length;
+			}
+		}
+
+		// Remove entries whose content is gone.
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, "*" + ENTRY_SUFFIX)) {
+			for (Path entryFile : entries) {
+				String name = Config.load(entryFile.toFile()).get("file");
+				if (name == null || !Files.exists(dir.resolve(name))) {
+					Files.deleteIfExists(entryFile);
+				}
+			}
+		}
+	}
+
+	/** Local files gain nothing from caching. */
+	private static boolean isCacheable(URL url) {
+		return !"file".equals(url.getProtocol());
+	}
+
+	private static Path entryFile(Path dir, URL url) {
+		return dir.resolve(sha256(url.toString()) + ENTRY_SUFFIX);
+	}
+
+	/**
+	 * Gets the {@code ETag} and {@code Last-Modified} headers sent with the
+	 * content downloaded from the given URL, as entry properties.
+	 */
+	private static Map<String, String> validators(URL url, DownloadProgress download) {
+		Map<String, String> validators = new LinkedHashMap<>();
+		if (download == null || download.source() == null) return validators;
+		if (!url.toString().equals(download.source().toString())) {
+			// NB: Another mirror's validators mean nothing to this URL's server.
+			Log.debug("Not recording validators of " + download.source() + " for " + url);
+			return validators;
+		}
+		if (download.etag() != null) validators.put("etag", download.etag());
+		if (download.lastModified() != null) validators.put("last-modified", download.lastModified());
+		return validators;
+	}
+
+	/**
+	 * Asks the server, via a conditional request, whether the given URL still
+	 * serves the content of the given entry. Entries without validators, and
+	 * servers that cannot be reached, are given the benefit of the doubt.
+	 */
+	private static boolean isFresh(URL url, Map<String, String> entry) {
+		String etag = entry.get("etag");
+		String lastModified = entry.get("last-modified");
+		if (etag == null && lastModified == null) return true;
+		try {
+			HttpURLConnection conn = head(url);
+			if (conn == null) return true;
+			try {
+				if (etag != null) conn.setRequestProperty("If-None-Match", etag);
+				if (lastModified != null) conn.setRequestProperty("If-Modified-Since", lastModified);
+				int code = conn.getResponseCode();
+				if (code == HttpURLConnection.HTTP_NOT_MODIFIED) return true;
+				if (code != HttpURLConnection.HTTP_OK) return true; // Server trouble.
+				// The server may ignore conditional requests; compare ourselves.
+				String newEtag = conn.getHeaderField("ETag");
+				String newLastModified = conn.getHeaderField("Last-Modified");
+				if (etag != null && newEtag != null) return etag.equals(newEtag);
+				return lastModified == null || lastModified.equals(newLastModified);
+			}
+			finally {
+				conn.disconnect();
+			}
+		}
+		catch (IOException exc) {
+			// Offline, presumably; the cached content is better than nothing.
+			Log.debug(exc);
+			return true;
+		}
+	}
+
+	/** Prepares a HEAD request to the given URL, or returns {@code null} if not HTTP. */
+	private static HttpURLConnection head(URL url) throws IOException {
+		URLConnection conn = url.openConnection();
+		if (!(conn instanceof HttpURLConnection)) return null;
+		HttpURLConnection http = (HttpURLConnection) conn;
+		http.setRequestMethod("HEAD");
+		http.setInstanceFollowRedirects(true);
+		http.setConnectTimeout(MirrorDownloader.TIMEOUT_MILLIS);
+		http.setReadTimeout(MirrorDownloader.TIMEOUT_MILLIS);
+		return http;
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException exc) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	static String sha256(File file) throws IOException {
+		MessageDigest md = sha256();
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int r;
+			while ((r = in.read(buf)) > 0) md.update(buf, 0, r);
+		}
+		return toHex(md.digest());
+	}
+
+	static String sha256(String s) {
+		return toHex(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException exc) {
+			// Every Java implementation must support SHA-256.
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,260 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Locale;
+
+/**
+ * A snapshot of an ongoing download's progress: bytes transferred, expected
+ * total, throughput and estimated time remaining.
+ * <p>
+ * Two throughputs are reported: the {@link #rate() instantaneous} one, over
+ * the most recent sampling interval, which reveals stalls and hiccups as they
+ * happen; and a {@link #smoothedRate() smoothed} one, an exponential moving
+ * average, from which the {@link #eta() ETA} is estimated.
+ * </p>
+ * <p>
+ * The snapshot also carries the {@code ETag} and {@code Last-Modified}
+ * headers the server sent along with the content, so that the content can be
+ * revalidated later without asking the server for them again.
+ * </p>
+ */
+public final class DownloadProgress {
+
+	private final long bytes;
+	private final long total;
+	private final double rate;
+	private final double smoothedRate;
+	private final int connections;
+	private final URL source;
+	private final String etag;
+	private final String lastModified;
+
+	DownloadProgress(long bytes, long total, double rate, double smoothedRate,
+		int connections)
+	{
+		this(bytes, total, rate, smoothedRate, connections, null, null, null);
+	}
+
+	DownloadProgress(long bytes, long total, double rate, double smoothedRate,
+		int connections, URL source, String etag, String lastModified)
+	{
+		this.bytes = bytes;
+		this.total = total;
+		this.rate = rate;
+		this.smoothedRate = smoothedRate;
+		this.connections = connections;
+		this.source = source;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/** Gets the number of bytes downloaded thus far. */
+	public long bytes() {
+		return bytes;
+	}
+
+	/** Gets the total size of the content in bytes, or -1 if unknown. */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Gets the fraction of the content downloaded thus far, in the range
+	 * [0.0, 1.0], or {@link Double#NaN} if the total size is unknown.
+	 */
+	public double fraction() {
+		return total > 0 ? (double) bytes / total : Double.NaN;
+	}
+
+	/**
+	 * Gets the instantaneous throughput in bytes per second, measured over the
+	 * most recent sampling interval, or 0 if not yet measured.
+	 */
+	public double rate() {
+		return rate;
+	}
+
+	/**
+	 * Gets the smoothed throughput in bytes per second, or 0 if not yet
+	 * measured.
+	 */
+	public double smoothedRate() {
+		return smoothedRate;
+	}
+
+	/**
+	 * Gets the estimated number of seconds remaining, based on the smoothed
+	 * throughput, or -1 if unknown.
+	 */
+	public double eta() {
+		return total > 0 && smoothedRate > 0 ?
+			Math.max(0, total - bytes) / smoothedRate : -1;
+	}
+
+	/**
+	 * Gets the number of connections opened to transfer the content thus far.
+	 * This is more than one when a download switches between mirrors.
+	 */
+	public int connections() {
+		return connections;
+	}
+
+	/**
+	 * Gets the URL currently transferring the content, i.e. the mirror in use,
+	 * or {@code null} if unknown.
+	 */
+	public URL source() {
+		return source;
+	}
+
+	/**
+	 * Gets the {@code ETag} header {@link #source() the source} sent for the
+	 * content, or {@code null} if none.
+	 */
+	public String etag() {
+		return etag;
+	}
+
+	/**
+	 * Gets the {@code Last-Modified} header {@link #source() the source} sent
+	 * for the content, or {@code null} if none.
+	 */
+	public String lastModified() {
+		return lastModified;
+	}
+
+	/** Formats the progress for humans, e.g. "12.3 of 190.0 MB, 5.2 MB/s, 0:34 left". */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		if (total > 0) {
+			sb.append(String.format(Locale.ROOT, "%.1f of %.1f MB", mb(bytes), mb(total)));
+		}
+		else sb.append(String.format(Locale.ROOT, "%.1f MB", mb(bytes)));
+		if (smoothedRate > 0) {
+			sb.append(String.format(Locale.ROOT, ", %.1f MB/s", mb(smoothedRate)));
+		}
+		double eta = eta();
+		if (eta >= 0) {
+			long seconds = (long) Math.ceil(eta);
+			sb.append(String.format(Locale.ROOT, ", %d:%02d left", seconds / 60, seconds % 60));
+		}
+		if (connections > 1) sb.append(", ").append(connections).append(" connections");
+		return sb.toString();
+	}
+
+	private static double mb(double bytes) {
+		return bytes / (1024 * 1024);
+	}
+
+	/**
+	 * Tracks a download as it proceeds, producing {@link DownloadProgress}
+	 * snapshots.
+	 */
+	static class Meter {
+
+		/** Minimum duration of a throughput sample. */
+		static final long SAMPLE_NANOS = 250_000_000;
+
+		/** Weight of the newest throughput sample in the moving average. */
+		private static final double SMOOTHING = 0.3;
+
+		private long total = -1;
+		private int connections;
+		private URL source;
+		private String etag, lastModified;
+		private boolean started;
+		private long sampleTime;
+		private long sampleBytes;
+		private double rate, smoothedRate;
+
+		/** Records that a connection was opened to transfer content. */
+		synchronized void connected() {
+			connections++;
+		}
+
+		/**
+		 * Records the URL transferring the content, along with the validators
+		 * its server sent in the given response.
+		 */
+		synchronized void source(URL url, URLConnection conn) throws IOException {
+			source = url;
+			etag = lastModified = null;
+			if (!(conn instanceof HttpURLConnection)) return;
+			int code = ((HttpURLConnection) conn).getResponseCode();
+			if (code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_PARTIAL) return;
+			etag = conn.getHeaderField("ETag");
+			lastModified = conn.getHeaderField("Last-Modified");
+		}
+
+		/**
+		 * Records the content's total size, once known.
+		 *
+		 * @param total The size in bytes, or -1 if unknown.
+		 */
+		synchronized void total(long total) {
+			this.total = total;
+		}
+
+		/**
+		 * Records the number of bytes downloaded thus far.
+		 *
+		 * @return A snapshot of the download's progress.
+		 */
+		DownloadProgress update(long bytes) {
+			return update(bytes, System.nanoTime());
+		}
+
+		/** As {@link #update(long)}, at the given {@link System#nanoTime()}. */
+		synchronized DownloadProgress update(long bytes, long now) {
+			long elapsed = now - sampleTime;
+			if (!started || bytes < sampleBytes) {
+				// The download just started, or started over.
+				started = true;
+				sampleTime = now;
+				sampleBytes = bytes;
+			}
+			else if (elapsed >= SAMPLE_NANOS) {
+				rate = (bytes - sampleBytes) * 1e9 / elapsed;
+				smoothedRate = smoothedRate == 0 ? rate :
+					SMOOTHING * rate + (1 - SMOOTHING) * smoothedRate;
+				sampleTime = now;
+				sampleBytes = bytes;
+			}
+			return new DownloadProgress(bytes, total, rate, smoothedRate,
+				connections, source, etag, lastModified);
+		}
+	}
+}
@@ -42,14 +42,17 @@ import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Utility class for downloading remote content asynchronously.
+ * <p>
+ * Downloads run on the launcher's shared I/O executor. Cancelling a
+ * download's {@link Future} stops it promptly, even mid-read.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -77,14 +80,46 @@ public final class Downloader {
 	public static Future<Void> download(URL source, File dest,
 		Consumer<Double> progressConsumer)
 	{
-		ExecutorService executor = Executors.newSingleThreadExecutor();
-		return executor.submit(() -> {
+		return downloadWithProgress(source, dest, progressConsumer == null ? null :
+			p -> progressConsumer.accept(p.total() > 0 ?
+				(double) p.bytes() / p.total() : // Total is known; return [0.0, 1.0].
+				(double) p.bytes())); // Total is unknown; return bytes downloaded.
+	}
+
+	/**
+	 * Downloads content from the given {@link URL} into the specified {@link File}.
+	 * Progress is reported to the given {@link Consumer} if one is provided,
+	 * as {@link DownloadProgress} snapshots including the throughput and
+	 * estimated time remaining.
+	 *
+	 * @param source The {@link URL} where the content to download resides.
+	 * @param dest The {@link File} into which the content should be stored.
+	 * @param progressConsumer A {@link Consumer} to receive updates as the
+	 *                          download proceeds, or {@code null} if no updates
+	 *                          need to be reported.
+	 * @return A {@link Future} representing the asynchronous download operation.
+	 */
+	public static Future<Void> downloadWithProgress(URL source, File dest,
+		Consumer<DownloadProgress> progressConsumer)
+	{
+		RateLimiter limiter = RateLimiter.current();
+		return TaskExecutor.submit(() -> {
+			// NB: A single connection provides both the content and its length.
+			URLConnection conn = connect(source);
+			if (conn instanceof HttpURLConnection) {
+				// Unblock any pending read if the download gets cancelled.
+				TaskExecutor.onCancel(((HttpURLConnection) conn)::disconnect);
+			}
+			DownloadProgress.Meter meter = new DownloadProgress.Meter();
+			meter.connected();
+			meter.source(source, conn);
+			meter.total(conn.getContentLengthLong());
 			try (
-				ReadableByteChannel rbc = Channels.newChannel(openStream(source));
+				ReadableByteChannel rbc =
+					Channels.newChannel(limiter.throttle(conn.getInputStream()));
 				FileOutputStream fos = new FileOutputStream(dest)
 			) {
 				FileChannel fileChannel = fos.getChannel();
-				long total = source.openConnection().getContentLengthLong();
 				long read = 0;
 				long r;
 				long chunkSize = 64 * 1024; // Start with 64KB chunks.
@@ -103,15 +138,115 @@ public final class Downloader {
 						Math.max(minChunkSize, chunkSize * elapsed / targetTime));
 					time = next;
 					read += r;
-					progressConsumer.accept(total > 0 ?
-						(double) read / total : // Total is known; return [0.0, 1.0].
-						(double) read); // Total is unknown; return bytes downloaded.
+					DownloadProgress progress = meter.update(read);
+					if (progressConsumer != null) progressConsumer.accept(progress);
 				}
 				return null;
 			}
-			finally {
-				executor.shutdown();
-			}
+		});
+	}
+
+	/**
+	 * Downloads content available from several mirrors into the specified
+	 * {@link File}, using whichever mirror is fastest, and switching to another
+	 * one if throughput collapses partway. Progress is reported to the given
+	 * {@link BiConsumer} if one is provided, as the number of bytes downloaded
+	 * thus far, together with the total size of the content, or -1 if the size
+	 * is unknown.
+	 *
+	 * @param mirrors The {@link URL}s where the content to download resides,
+	 *                 each of which must serve identical content.
+	 * @param dest The {@link File} into which the content should be stored.
+	 * @param progressConsumer A {@link BiConsumer} to receive updates as the
+	 *                          download proceeds, or {@code null} if no updates
+	 *                          need to be reported.
+	 * @return A {@link Future} representing the asynchronous download operation.
+	 */
+	public static Future<Void> download(List<URL> mirrors, File dest,
+		BiConsumer<Long, Long> progressConsumer)
+	{
+		return downloadWithProgress(mirrors, dest, bytesAndTotal(progressConsumer));
+	}
+
+	/**
+	 * Downloads content available from several mirrors into the specified
+	 * {@link File}, using whichever mirror is fastest, and switching to another
+	 * one if throughput collapses partway. Progress is reported as for
+	 * {@link #downloadWithProgress(URL, File, Consumer)}.
+	 *
+	 * @param mirrors The {@link URL}s where the content to download resides,
+	 *                 each of which must serve identical content.
+	 * @param dest The {@link File} into which the content should be stored.
+	 * @param progressConsumer A {@link Consumer} to receive updates as the
+	 *                          download proceeds, or {@code null} if no updates
+	 *                          need to be reported.
+	 * @return A {@link Future} representing the asynchronous download operation.
+	 */
+	public static Future<Void> downloadWithProgress(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer)
+	{
+		if (mirrors.size() == 1) {
+			return downloadWithProgress(mirrors.get(0), dest, progressConsumer);
+		}
+		RateLimiter limiter = RateLimiter.current();
+		return TaskExecutor.submit(() -> {
+			new MirrorDownloader(mirrors, dest, progressConsumer, limiter).download();
+			return null;
+		});
+	}
+
+	/**
+	 * Continues downloading content available from several mirrors into the
+	 * specified {@link File}, after the content already there, e.g. from an
+	 * earlier interrupted download. Mirrors which do not support range
+	 * requests start over. Otherwise, this works as
+	 * {@link #downloadWithProgress(List, File, Consumer)} does.
+	 *
+	 * @param mirrors The {@link URL}s where the content to download resides,
+	 *                 each of which must serve identical content.
+	 * @param dest The {@link File} into which the content should be stored.
+	 * @param progressConsumer A {@link Consumer} to receive updates as the
+	 *                          download proceeds, or {@code null} if no updates
+	 *                          need to be reported.
+	 * @return A {@link Future} representing the asynchronous download operation.
+	 */
+	public static Future<Void> resume(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer)
+	{
+		RateLimiter limiter = RateLimiter.current();
+		return TaskExecutor.submit(() -> {
+			new MirrorDownloader(mirrors, dest, progressConsumer, limiter, true).download();
+			return null;
+		});
+	}
+
+	/**
+	 * Downloads a byte range of the content available from several mirrors
+	 * into the specified {@link File}, via HTTP range requests. Mirrors are
+	 * tried in the given order, moving on to the next one if a mirror fails or
+	 * its throughput collapses, so callers fetching many ranges can rank them
+	 * once beforehand. Progress is reported as for
+	 * {@link #downloadWithProgress(URL, File, Consumer)}, counting bytes of
+	 * the range only.
+	 *
+	 * @param mirrors The {@link URL}s where the content resides, each of which
+	 *                 must serve identical content.
+	 * @param offset Position of the first byte to download.
+	 * @param length Number of bytes to download; must be positive.
+	 * @param dest The {@link File} into which the bytes should be stored.
+	 * @param progressConsumer A {@link Consumer} to receive updates as the
+	 *                          download proceeds, or {@code null} if no updates
+	 *                          need to be reported.
+	 * @return A {@link Future} representing the asynchronous download operation.
+	 */
+	public static Future<Void> downloadRange(List<URL> mirrors, long offset,
+		long length, File dest, Consumer<DownloadProgress> progressConsumer)
+	{
+		if (length <= 0) throw new IllegalArgumentException("Invalid length: " + length);
+		RateLimiter limiter = RateLimiter.current();
+		return TaskExecutor.submit(() -> {
+			new MirrorDownloader(mirrors, dest, progressConsumer, limiter, offset, length).download();
+			return null;
 		});
 	}
 
@@ -125,11 +260,27 @@ public final class Downloader {
 
 	/** Like {@link URL#openStream()}, but following HTTP 3xx redirects. */
 	public static InputStream openStream(URL source) throws IOException {
+		return connect(source).getInputStream();
+	}
+
+	// -- Helper methods --
+
+	private static URLConnection connect(URL source) throws IOException {
 		URLConnection conn = source.openConnection();
+		// Fail rather than hang on an unresponsive or stalled server.
+		conn.setConnectTimeout(MirrorDownloader.TIMEOUT_MILLIS);
+		conn.setReadTimeout(MirrorDownloader.STALL_MILLIS);
 		if (conn instanceof HttpURLConnection) {
 			// Follow 3xx redirects automatically.
 			((HttpURLConnection) conn).setInstanceFollowRedirects(true);
 		}
-		return conn.getInputStream();
+		return conn;
+	}
+
+	private static Consumer<DownloadProgress> bytesAndTotal(
+		BiConsumer<Long, Long> progressConsumer)
+	{
+		return progressConsumer == null ? null :
+			p -> progressConsumer.accept(p.bytes(), p.total());
 	}
 }
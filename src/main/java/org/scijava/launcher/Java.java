@@ -31,21 +31,25 @@ package org.scijava.launcher;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.BiConsumer;
 import java.util.prefs.Preferences;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Utility class for working with Java installations.
@@ -56,14 +60,32 @@ import java.util.stream.Stream;
  */
 public class Java {
 
+	/** The Java installation most recently selected via {@code jvm-dir}. */
+	private static volatile Path selectedJava;
+
 	/**
 	 * Checks that the version of running JVM is new enough for the application,
 	 * and if not, offers to download+install a newer version as appropriate.
 	 */
 	public static void check() throws IOException {
-		Splash.update("Checking Java version...");
+		if (!isHeadless()) Splash.update("Checking Java version...");
+		Path managedHome = managedHome();
+		if (managedHome != null) JavaInstallation.markUsed(managedHome);
+		if (managedHome != null && JavaTrimmer.isStale(managedHome)) {
+			// The trimmed runtime may lack modules the application now needs.
+			fallBackFromTrimmed(managedHome);
+		}
+		if (JavaPruner.isEnabled()) JavaPruner.start();
 
 		if (!isBelowRecommended()) return; // The running Java version is all good! \^_^/
+
+		// In staged mode, an adequate Java is upgraded in the background,
+		// without bothering the user; the next launch uses the new Java.
+		if (isStagedUpgradeMode() && !isBelowMinimum() && (isManaged() || isBundled())) {
+			stageUpgrade();
+			return;
+		}
+
 		String appName = ClassLauncher.appName("the application");
 		String warnAboutOldJavaVersion =
 			"The Java version currently in use, " + currentVersion() +
@@ -127,7 +149,7 @@ public class Java {
 					"<br>URL checked: " + sysProp("scijava.app.java-links") +
 					"<br>Platform detected: " + sysProp("scijava.app.java-platform") +
 					"<br>Please report this failure on forum.image.sc.";
-				Dialogs.ask(null, message, "OK", null, null);
+				ask(message, "OK", null, null);
 				return;
 			}
 			// If this is a managed installation at this point we know the user
@@ -161,31 +183,46 @@ public class Java {
 	/**
 	 * Gets the list of "managed" Java installations, beneath the {@link #root()}
 	 * directory, or an empty list if no root has been indicated.
+	 *
+	 * @return The installations' {@code release} files, best installation first.
+	 * @see #discover()
 	 */
 	public static List<Path> installations() throws IOException {
+		return discover().stream()
+			.map(installation -> installation.home().resolve("release"))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Discovers the "managed" Java installations beneath the {@link #root()}
+	 * directory, ranked from best to worst.
+	 *
+	 * Installations known from a previous launch are taken from an index file
+	 * within the root, as long as their folders are unchanged on disk.
+	 *
+	 * @return The installations found, or an empty list if no root has been indicated.
+	 * @see JavaInstallation#discover(Path)
+	 */
+	public static List<JavaInstallation> discover() throws IOException {
 		Path javaRoot = root();
 		if (javaRoot == null) return Collections.emptyList();
-		// Find all */release files beneath the java root path.
-		try (Stream<Path> paths = Files.walk(javaRoot, 2, FileVisitOption.FOLLOW_LINKS)) {
-			return paths
-				.filter(path -> path.getFileName().toString().equals("release"))
-				.filter(path -> path.getNameCount() == javaRoot.getNameCount() + 2)
-				.collect(Collectors.toList());
-		}
+		return JavaIndex.installations(javaRoot);
 	}
 
+	/**
+	 * Gets the best "managed" Java installation that meets the recommended
+	 * version and is built for the target architecture, or {@code null} if
+	 * there is no such installation.
+	 */
 	public static Path goodInstallation() throws IOException {
-		String recommended = recommendedVersion();
-		for (Path javaHome : installations()) {
-			String v = readVersion(javaHome);
-			if (v != null && Versions.compare(v, recommended) >= 0) return javaHome.getParent();
-		}
-		return null;
+		JavaInstallation best =
+			JavaInstallation.best(discover(), recommendedVersion());
+		return best == null ? null : best.home();
 	}
 
 	public static boolean isBelowMinimum() {
 		try {
-			return Versions.compare(currentVersion(), minimumVersion()) < 0;
+			return compareVersions(currentVersion(), minimumVersion()) < 0;
 		}
 		catch (IllegalStateException exc) {
 			Log.debug(exc);
@@ -195,7 +232,7 @@ public class Java {
 
 	public static boolean isBelowRecommended() {
 		try {
-			return Versions.compare(currentVersion(), recommendedVersion()) < 0;
+			return compareVersions(currentVersion(), recommendedVersion()) < 0;
 		}
 		catch (IllegalStateException exc) {
 			Log.debug(exc);
@@ -255,6 +292,22 @@ public class Java {
 		return isNested(javaHome, javaRoot);
 	}
 
+	/**
+	 * Gets the folder of the running JVM's installation beneath {@link #root()},
+	 * i.e. the installation's top-level folder, even if {@code java.home} points
+	 * to a subfolder of it (such as the {@code jre} folder of a Java 8 JDK).
+	 *
+	 * @return The installation folder, or {@code null} if the JVM is not managed.
+	 */
+	static Path managedHome() {
+		Path javaHome = home();
+		Path javaRoot = root();
+		if (!isNested(javaHome, javaRoot)) return null;
+		Path relative = javaRoot.relativize(javaHome.normalize());
+		if (relative.toString().isEmpty()) return null;
+		return javaRoot.resolve(relative.getName(0));
+	}
+
 	/**
 	 * Gets whether the running JVM is considered "bundled" with the application.
 	 * A bundled JVM is one residing on the filesystem beneath the folder indicated
@@ -270,6 +323,27 @@ public class Java {
 		return Boolean.getBoolean("java.awt.headless");
 	}
 
+	/**
+	 * Gets whether Java upgrades should be staged in the background rather
+	 * than performed interactively, as indicated by setting the
+	 * {@code scijava.app.java-upgrade-mode} system property to {@code staged}.
+	 */
+	public static boolean isStagedUpgradeMode() {
+		return "staged".equalsIgnoreCase(System.getProperty("scijava.app.java-upgrade-mode"));
+	}
+
+	/**
+	 * Starts a low-priority background thread that downloads, unpacks and
+	 * verifies the recommended Java, then points {@code jvm-dir} at it, so that
+	 * it is used from the next launch on. Nothing is changed unless the new
+	 * installation verifies successfully.
+	 *
+	 * @see StagedUpgrade
+	 */
+	public static void stageUpgrade() {
+		StagedUpgrade.start();
+	}
+
 	public static void upgrade() {
 		upgrade(isHeadless());
 	}
@@ -282,40 +356,92 @@ public class Java {
 		if (!headless) Splash.show(false);
 		String upgradeComplete = "<html>Java has been updated successfully.<br>" +
 				"Please restart " + ClassLauncher.appName() + " to apply the changes.";
+		boolean cancelled = false;
 		try {
 			if (headless) {
-				String[] message = {""};
-				upgrade((s, fraction) -> {
-					StringBuilder sb = new StringBuilder();
-					sb.append(s == null ? "Downloading Java" : s);
-					if (fraction != null) {
-						int p = (int) (100 * fraction);
-						sb.append(" [").append(p).append("]");
-					}
-					// Display the message only if it has changed.
-					String latest = sb.toString();
-					if (!latest.equals(message[0])) {
-						System.out.println(message[0] = latest);
-					}
-				});
+				// Report throttled progress, rather than one line per update.
+				ProgressStream progress = new ProgressStream(System.out);
+				upgrade((s, fraction) -> progress.status(s), progress);
 				upgradeComplete = "Java has been updated successfully.\n" +
 						"Please restart " + ClassLauncher.appName() + " to apply the changes.";
 			}
-			else {
-				upgrade(Splash::update);
-			}
+			else cancelled = !upgradeCancellably();
 		}
 		catch (IOException e) {
-			Log.error(e);
+			if (Thread.interrupted()) {
+				cancelled = true;
+				Log.debug(e);
+			}
+			else Log.error(e);
 		}
 		finally {
-			if (!headless) Splash.hide();
+			if (!headless) {
+				Splash.setCancelAction(null);
+				Splash.hide();
+			}
+		}
+		if (cancelled) {
+			// NB: A partial download or unpacking is resumed next time.
+			Log.debug("Java upgrade cancelled");
+			shutdownAfter = false;
 		}
 		if (shutdownAfter) notifyAndShutdown(upgradeComplete, headless);
 	}
 
+	/**
+	 * Upgrades Java on a separate thread, which the user may cancel via the
+	 * splash window. The calling thread, which goes on to launch the
+	 * application, is never interrupted.
+	 *
+	 * @return {@code false} if the user cancelled the upgrade.
+	 */
+	private static boolean upgradeCancellably() throws IOException {
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			upgrade(Splash::update);
+			return null;
+		});
+		Thread upgrader = new Thread(task, "Java-Upgrader");
+		// Don't let a cancelled upgrade, still winding down, block shutdown.
+		upgrader.setDaemon(true);
+		Splash.setCancelAction(() -> task.cancel(true));
+		upgrader.start();
+		try {
+			task.get();
+			return true;
+		}
+		catch (CancellationException exc) {
+			return false;
+		}
+		catch (ExecutionException exc) {
+			Throwable cause = exc.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IOException(cause);
+		}
+		catch (InterruptedException exc) {
+			task.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for the Java upgrade");
+		}
+	}
+
 	public static void upgrade(BiConsumer<String, Double> subscriber)
 		throws IOException
+	{
+		upgrade(subscriber, null);
+	}
+
+	/**
+	 * Downloads and unpacks the recommended Java.
+	 *
+	 * @param subscriber Receiver of status messages and progress fractions.
+	 * @param progress If non-null, receives the download and unpacking progress
+	 *                  in place of the subscriber, which then gets status
+	 *                  messages only.
+	 */
+	static void upgrade(BiConsumer<String, Double> subscriber,
+		ProgressStream progress) throws IOException
 	{
 		// Discern the Java root directory, creating it if necessary.
 		Path javaRootPath = root(true);
@@ -326,46 +452,110 @@ public class Java {
 
 		subscriber.accept("Updating Java...", Double.NaN);
 
-
-		// If no valid link found, fail.
-		final String javaLink = getJavaLink();
-		if (javaLink == null) {
+		// Download and unpack via a staging folder, in coordination with any
+		// other processes upgrading the same java-root at the same time.
+		Path newJavaPath = StagedUpgrade.install(javaRootPath, subscriber, progress);
+		if (newJavaPath == null) {
 			Log.error("No Java download available for platform: " +
 					sysProp("scijava.app.java-platform"));
 			return;
 		}
 
-		// Create a temp file to house the downloaded Java archive.
-		String prefix = Java.class.getName() + "-";
+		// Write new installation location into the requested configuration file.
+		updateJavaPath(newJavaPath);
+
+		subscriber.accept("Java update complete", Double.NaN);
+	}
+
+	/**
+	 * Downloads the Java archive at the given link and unpacks it into the
+	 * given folder.
+	 *
+	 * @return The unpacked Java installation folder, or {@code null} if unknown.
+	 */
+	static Path install(String javaLink, Path destPath,
+		BiConsumer<String, Double> subscriber, ProgressStream progress)
+		throws IOException
+	{
+		return install(Collections.singletonList(javaLink), destPath, subscriber, progress);
+	}
+
+	/**
+	 * Downloads the Java archive available from the given mirrors, from the
+	 * fastest of them, and unpacks it into the given folder. The first link is
+	 * the archive's canonical one, e.g. for caching purposes.
+	 *
+	 * @return The unpacked Java installation folder, or {@code null} if unknown.
+	 */
+	static Path install(List<String> javaLinks, Path destPath,
+		BiConsumer<String, Double> subscriber, ProgressStream progress)
+		throws IOException
+	{
+		String javaLink = javaLinks.get(0);
+		URL url = new URL(javaLink);
+		List<URL> mirrors = new ArrayList<>();
+		for (String link : javaLinks) mirrors.add(new URL(link));
 		Matcher m = Pattern.compile(".*?((\\.tar)?\\.[^.]*)$").matcher(javaLink);
 		String suffix = m.matches() ? m.group(1) : null;
+
+		// Create a temp file to house the downloaded Java archive.
+		String prefix = Java.class.getName() + "-";
 		File tmpArchive = Files.createTempFile(prefix, suffix).toFile();
 		tmpArchive.deleteOnExit();
 
-		// Perform the download.
-		waitForTask(Downloader.download(new URL(javaLink), tmpArchive,
-			d -> subscriber.accept("Downloading Java...", d)));
+		try {
+			// Fetch only what changed relative to an installed Java, if possible.
+			if (JavaDelta.isEnabled()) {
+				Path updated = JavaDelta.tryInstall(mirrors, destPath, subscriber, progress);
+				if (updated != null) return updated;
+			}
 
-		// Unpack the downloaded archive.
-		String[] dir = {null};
-		waitForTask(Archives.unpack(tmpArchive, javaRootFile, s -> {
-			// Save a reference to the first directory being unpacked.
-			// This is only a heuristic, but it works for most Java archives.
-			if (s != null && dir[0] == null && s.endsWith("/")) dir[0] = s;
-			// Forward the message on to our upgrade subscriber.
-			subscriber.accept("Unpacking " + s, Double.NaN);
-		}));
+			// Reuse an earlier download of the same archive, if possible.
+			File archive = DownloadCache.get(url);
+			if (archive != null) {
+				subscriber.accept("Using previously downloaded Java", Double.NaN);
+			}
+			else {
+				// Perform the download.
+				DownloadProgress[] last = {null};
+				waitForTask(Downloader.downloadWithProgress(mirrors, tmpArchive, p -> {
+					last[0] = p;
+					if (progress != null) progress.progress("download", p);
+					else subscriber.accept("Downloading Java: " + p, p.total() > 0 ?
+						p.fraction() : (double) p.bytes());
+				}));
+				Log.debug("Downloaded " + javaLink + ": " + last[0]);
+				archive = DownloadCache.put(url, tmpArchive, suffix, last[0]);
+			}
 
-		// Write new installation location into the requested configuration file.
-		if (dir[0] != null) {
-			Path newJavaPath = javaRootPath.resolve(dir[0]).normalize().toAbsolutePath();
-			updateJavaPath(newJavaPath);
-		}
+			// Optionally, share files with identical ones of installed Javas.
+			List<Path> linkSources = null;
+			if (Boolean.getBoolean("scijava.app.java-hardlinks")) {
+				linkSources = discover().stream()
+					.map(JavaInstallation::home).collect(Collectors.toList());
+			}
 
-		subscriber.accept("Java update complete", Double.NaN);
+			// Unpack the downloaded archive, resumably if interrupted.
+			String[] dir = {null};
+			long[] entries = {0};
+			waitForTask(Archives.unpack(archive, destPath.toFile(), s -> {
+				// Save a reference to the first directory being unpacked.
+				// This is only a heuristic, but it works for most Java archives.
+				if (s != null && dir[0] == null && s.endsWith("/")) dir[0] = s;
+				// Forward the message on to our upgrade subscriber.
+				if (progress != null) progress.progress("unpack", ++entries[0], -1);
+				else subscriber.accept("Unpacking " + s, Double.NaN);
+			}, linkSources, true));
+			return dir[0] == null ? null :
+				destPath.resolve(dir[0]).normalize().toAbsolutePath();
+		}
+		finally {
+			tmpArchive.delete();
+		}
 	}
 
-	private static void updateJavaPath(Path newJavaPath) throws IOException {
+	static void updateJavaPath(Path newJavaPath) throws IOException {
+		selectedJava = newJavaPath;
 		String configFileValue = System.getProperty("scijava.app.config-file");
 		if (configFileValue != null && !configFileValue.isEmpty()) {
 			File configFile = new File(configFileValue);
@@ -390,17 +580,44 @@ public class Java {
 	 * the best option for the current platform. Returns {@code null} if no valid
 	 * link was found.
 	 */
-	private static String getJavaLink() throws IOException {
+	static String getJavaLink() throws IOException {
+		List<String> javaLinks = getJavaLinks();
+		return javaLinks.isEmpty() ? null : javaLinks.get(0);
+	}
+
+	/**
+	 * Helper method to fetch the latest Java URLs for each platform and return
+	 * all options for the current platform: the platform's key may be listed
+	 * repeatedly, and may list several whitespace-separated mirrors serving
+	 * the same archive. Returns an empty list if no valid link was found.
+	 */
+	static List<String> getJavaLinks() throws IOException {
 		// Download the mapping of platforms to Java download links.
 		String javaLinks = sysProp("scijava.app.java-links");
 		List<String> lines = Downloader.downloadText(new URL(javaLinks));
 
-		// Extract the relevant Java download link from the mapping.
+		// Extract the relevant Java download links from the mapping.
 		String javaPlatform = sysProp("scijava.app.java-platform");
-		return lines.stream()
-				.filter(line -> line.startsWith(javaPlatform + "="))
-				.map(line -> line.substring(javaPlatform.length() + 1))
-				.findFirst().orElse(null);
+		List<String> links = parseJavaLinks(lines).get(javaPlatform);
+		return links == null ? Collections.emptyList() : links;
+	}
+
+	/**
+	 * Parses the lines of a java-links file into a map from each platform to
+	 * its Java download links, in order of appearance.
+	 */
+	static Map<String, List<String>> parseJavaLinks(List<String> lines) {
+		Map<String, List<String>> links = new LinkedHashMap<>();
+		for (String line : lines) {
+			int equals = line.indexOf('=');
+			if (equals < 0) continue;
+			String platform = line.substring(0, equals);
+			for (String link : line.substring(equals + 1).trim().split("\\s+")) {
+				if (link.isEmpty()) continue;
+				links.computeIfAbsent(platform, p -> new ArrayList<>()).add(link);
+			}
+		}
+		return links;
 	}
 
 	/**
@@ -412,13 +629,43 @@ public class Java {
 		return test.normalize().startsWith(root);
 	}
 
+	/**
+	 * Points {@code jvm-dir} at the full JDK, instead of the given trimmed
+	 * runtime, which was built for other JAR files, then restarts, rather than
+	 * continuing on a runtime which may lack modules the application needs.
+	 */
+	private static void fallBackFromTrimmed(Path trimmed) throws IOException {
+		Path jdk = JavaTrimmer.source(trimmed);
+		if (jdk == null) jdk = goodInstallation();
+		if (jdk == null) {
+			Log.debug("Trimmed Java is outdated, but no full Java remains: " + trimmed);
+			return;
+		}
+		Log.debug("Trimmed Java is outdated; falling back to " + jdk);
+		updateJavaPath(jdk);
+		// NB: Relaunches right away if enabled; else asks the user to restart.
+		notifyAndShutdown("<html>" + ClassLauncher.appName() + " has been switched to the full Java, " +
+			"since its trimmed Java is outdated.<br>" +
+			"Please restart " + ClassLauncher.appName() + " to apply the changes.");
+	}
+
 	private static void notifyAndShutdown(String message) {
-		notifyAndShutdown(message, false);
+		notifyAndShutdown(message, isHeadless());
 	}
 
 	private static void notifyAndShutdown(String message, boolean headless) {
+		if (selectedJava != null && Relaunch.isEnabled()) {
+			// Skip the restart notice, and restart with the new Java right away.
+			if (!headless) Splash.hide();
+			try {
+				Relaunch.exec(selectedJava, ClassLauncher.args());
+			}
+			catch (IOException exc) {
+				Log.error(exc);
+			}
+		}
 		if (headless) {
-			System.out.println(message);
+			System.out.println(ConsoleDialogs.plainText(message));
 		} else {
 			Dialogs.ask(null, message, "OK", null, null);
 		}
@@ -437,18 +684,14 @@ public class Java {
 		return value;
 	}
 
-	private static String readVersion(Path releasePath) {
-		try {
-			String prefix = "JAVA_VERSION=";
-			return Files.readAllLines(releasePath).stream()
-				.filter(line -> line.startsWith(prefix))
-				.map(line -> line.substring(prefix.length()).replaceAll("\"", ""))
-				.findFirst().orElse(null);
-		}
-		catch (IOException e) {
-			Log.debug(e);
-			return null;
-		}
+	/**
+	 * Compares two Java version strings according to JEP 223, falling back to
+	 * {@link Version} comparison for strings that are not Java versions.
+	 */
+	static int compareVersions(String v1, String v2) {
+		JavaVersion j1 = JavaVersion.tryParse(v1), j2 = JavaVersion.tryParse(v2);
+		if (j1 != null && j2 != null) return j1.compareTo(j2);
+		return Version.parse(v1).compareTo(Version.parse(v2));
 	}
 
 	/**
@@ -464,8 +707,7 @@ public class Java {
 		boolean skipPrompt = prefs.getBoolean(prefKey, false);
 		if (skipPrompt) return false; // User previously said to "never ask again".
 
-		Dialogs.Result choice = Dialogs.ask(null,
-			"<html>" + message, yes, no, never);
+		Dialogs.Result choice = ask("<html>" + message, yes, no, never);
 
 		switch (choice) {
 			case YES: return true;
@@ -475,13 +717,37 @@ public class Java {
 		}
 	}
 
+	/**
+	 * Prompts the user, via the console when headless, without referencing
+	 * any UI classes in that case.
+	 */
+	private static Dialogs.Result ask(String message,
+		String yes, String no, String never)
+	{
+		return isHeadless() ?
+			ConsoleDialogs.ask(message, yes, no, never) :
+			Dialogs.ask(null, message, yes, no, never);
+	}
+
 	static void informAndMaybeUpgrade(UnsupportedClassVersionError e) {
 		if (isHeadless()) throw e; // Fail fast when headless.
+		informAndMaybeUpgrade(ClassLoaders.extractClassVersion(e), false);
+	}
 
+	/**
+	 * Informs the user that the application requires a newer version of Java,
+	 * offering to upgrade.
+	 *
+	 * @param classVersion The required class version, e.g. "65.0" for Java 21,
+	 *                      or {@code null} if unknown.
+	 * @param mayContinue Whether to offer launching anyway rather than quitting.
+	 */
+	static void informAndMaybeUpgrade(String classVersion, boolean mayContinue) {
 		StringBuilder message = new StringBuilder("<html>");
 		message.append("<p>")
 			.append(ClassLauncher.appName("The application"))
-			.append(" failed to launch because it requires a newer version of Java.")
+			.append(mayContinue ? " requires" : " failed to launch because it requires")
+			.append(" a newer version of Java.")
 			.append("</p>");
 
 		// What is our current version of Java?
@@ -490,7 +756,6 @@ public class Java {
 			.append(currentVersion).append("</li>");
 
 		// What Java version would be new enough?
-		String classVersion = ClassLoaders.extractClassVersion(e);
 		String neededVersion = classVersion == null ? "&lt;unknown&gt;" :
 			Versions.classVersionToJavaVersion(classVersion);
 		message.append("<li>Needed Java version: ")
@@ -498,17 +763,51 @@ public class Java {
 
 		message.append("</ul><p>How would you like to proceed?</p>");
 
-		Dialogs.Result choice = Dialogs.ask(null,
-			message.toString(), "Upgrade Java", "Just quit", null);
+		Dialogs.Result choice = Dialogs.ask(null, message.toString(),
+			"Upgrade Java", mayContinue ? "Launch anyway" : "Just quit", null);
 		if (choice == Dialogs.Result.YES) Java.upgrade();
-		else System.exit(1);
+		else if (!mayContinue || choice != Dialogs.Result.NO) System.exit(1);
 	}
 
-	private static <T> T waitForTask(Future<T> task) throws IOException {
+	/**
+	 * Checks, without loading it, whether the given main class can run on the
+	 * running JVM, and if not, offers to upgrade Java right away. If the
+	 * {@code scijava.app.preflight-jars} system property is set, the classes
+	 * of all JAR files on the class path are checked as well.
+	 */
+	static void preflight(String mainClass) {
+		if (isHeadless()) return; // The launch will fail fast anyway.
+		int running = Preflight.runningClassVersion();
+		if (running < 0) return;
+		int mainVersion = Preflight.classVersion(mainClass);
+		if (mainVersion > running) {
+			// The main class cannot be loaded at all; launching is futile.
+			informAndMaybeUpgrade(mainVersion + ".0", false);
+			return;
+		}
+		if (!Boolean.getBoolean("scijava.app.preflight-jars")) return;
+		int jarsVersion = Preflight.jarsVersion(Preflight.classPathJars());
+		// Some other classes are too new; the launch might still work.
+		if (jarsVersion > running) informAndMaybeUpgrade(jarsVersion + ".0", true);
+	}
+
+	/**
+	 * Waits for the given task, cancelling it if the waiting thread gets
+	 * interrupted.
+	 */
+	static <T> T waitForTask(Future<T> task) throws IOException {
 		try {
 			return task.get();
 		}
-		catch (ExecutionException | InterruptedException e) {
+		catch (InterruptedException e) {
+			// Propagate the cancellation to the task, e.g. to stop a download.
+			task.cancel(true);
+			Thread.currentThread().interrupt();
+			InterruptedIOException exc = new InterruptedIOException("Cancelled");
+			exc.initCause(e);
+			throw exc;
+		}
+		catch (ExecutionException e) {
 			throw new IOException(e);
 		}
 	}
@@ -0,0 +1,561 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Delta updates of Java, fetching only what changed relative to an already
+ * installed Java.
+ * <p>
+ * A Java archive in ZIP format may be accompanied by a <em>manifest</em>,
+ * published at the archive's URL plus {@code .manifest}, and generated by
+ * {@link #manifest(File)}. It lists each file of the archive, with its size,
+ * SHA-256 digest, and the byte range of its compressed data within the
+ * archive. Files identical to those of the installed Java are copied locally;
+ * only the others are downloaded, via HTTP range requests against the
+ * archive itself, so no extra hosting is needed beyond the manifest.
+ * </p>
+ * <p>
+ * Delta updates are enabled by the {@code scijava.app.java-delta} system
+ * property. Whenever they are not applicable, e.g. if there is no manifest,
+ * no installed Java, or the server does not support range requests, the
+ * whole archive is downloaded as usual.
+ * </p>
+ */
+final class JavaDelta {
+
+	/** First line of every manifest. */
+	static final String HEADER = "# scijava-java-manifest 1";
+
+	private static final int LOCAL_HEADER_SIG = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+	private static final int END_SIG = 0x06054b50;
+
+	/** Maximum number of unneeded bytes between files fetched together. */
+	static final long MAX_GAP = 64 * 1024;
+
+	private JavaDelta() { }
+
+	/** One file or folder of a Java archive, as listed in its manifest. */
+	static final class Entry {
+		final String path;
+		final long size;
+		final String sha256;
+		final int method;
+		final long offset;
+		final long compressedSize;
+
+		Entry(String path, long size, String sha256, int method, long offset,
+			long compressedSize)
+		{
+			this.path = path;
+			this.size = size;
+			this.sha256 = sha256;
+			this.method = method;
+			this.offset = offset;
+			this.compressedSize = compressedSize;
+		}
+
+		boolean isDirectory() {
+			return path.endsWith("/");
+		}
+
+		@Override
+		public String toString() {
+			return String.join("\t", sha256, String.valueOf(size),
+				String.valueOf(method), String.valueOf(offset),
+				String.valueOf(compressedSize), path);
+		}
+
+		static Entry parse(String line) throws IOException {
+			String[] tokens = line.split("\t", 6);
+			if (tokens.length != 6) throw new IOException("Invalid manifest line: " + line);
+			try {
+				return new Entry(tokens[5], Long.parseLong(tokens[1]), tokens[0],
+					Integer.parseInt(tokens[2]), Long.parseLong(tokens[3]),
+					Long.parseLong(tokens[4]));
+			}
+			catch (NumberFormatException exc) {
+				throw new IOException("Invalid manifest line: " + line, exc);
+			}
+		}
+	}
+
+	/** Gets whether delta updates are enabled. */
+	static boolean isEnabled() {
+		return Boolean.getBoolean("scijava.app.java-delta");
+	}
+
+	/**
+	 * Installs the Java archive available from the given mirrors into the
+	 * given folder as a delta against the best installed Java, if possible.
+	 *
+	 * @param mirrors The archive's URLs, the first being its canonical one,
+	 *                 next to which the manifest is published.
+	 * @param progress If non-null, receives the progress in place of the
+	 *                  subscriber.
+	 * @return The unpacked Java installation folder, or {@code null} if a delta
+	 *          update was not possible, and the archive should be downloaded
+	 *          as usual.
+	 * @throws InterruptedIOException If the update was cancelled.
+	 */
+	static Path tryInstall(List<URL> mirrors, Path destPath,
+		BiConsumer<String, Double> subscriber, ProgressStream progress)
+		throws InterruptedIOException
+	{
+		URL archive = mirrors.get(0);
+		if (!archive.getPath().endsWith(".zip")) return null;
+		try {
+			JavaInstallation base = null;
+			for (JavaInstallation java : Java.discover()) {
+				if (java.isTargetArch()) { base = java; break; }
+			}
+			if (base == null) return null;
+			List<Entry> manifest;
+			try {
+				manifest = parse(Downloader.downloadText(new URL(archive + ".manifest")));
+			}
+			catch (IOException exc) {
+				Log.debug("No Java manifest available: " + exc);
+				return null;
+			}
+			Log.debug("Updating Java from " + base.home() + " via delta against " + archive);
+			return install(mirrors, manifest, base.home(), destPath, subscriber, progress);
+		}
+		catch (InterruptedIOException exc) {
+			throw exc;
+		}
+		catch (IOException | RuntimeException exc) {
+			Log.debug("Delta update of Java failed; downloading it in full");
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Installs the Java archive available from the given mirrors into the
+	 * given folder, copying files identical to those of the given
+	 * installation, and downloading the rest via range requests, coalescing
+	 * the changed files that lie close together within the archive.
+	 *
+	 * @param progress If non-null, receives the progress in place of the
+	 *                  subscriber.
+	 * @return The unpacked Java installation folder.
+	 */
+	static Path install(List<URL> mirrors, List<Entry> manifest, Path base,
+		Path destPath, BiConsumer<String, Double> subscriber,
+		ProgressStream progress) throws IOException
+	{
+		String top = topFolder(manifest);
+		Path dest = destPath.resolve(top).normalize();
+		if (!dest.startsWith(destPath.normalize())) {
+			throw new IOException("Invalid manifest folder: " + top);
+		}
+		Reporter reporter = new Reporter(subscriber, progress);
+		long total = 0;
+		for (Entry entry : manifest) total += entry.size;
+
+		// Copy the unchanged files, and collect the changed ones.
+		long done = 0;
+		List<Entry> changed = new ArrayList<>();
+		for (Entry entry : manifest) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Delta update cancelled");
+			}
+			Path target = target(dest, top, entry);
+			if (entry.isDirectory()) {
+				Files.createDirectories(target);
+				continue;
+			}
+			Files.createDirectories(target.getParent());
+			Path local = base.resolve(entry.path.substring(top.length()));
+			if (Files.isRegularFile(local) && Files.size(local) == entry.size &&
+				entry.sha256.equals(DownloadCache.sha256(local.toFile())))
+			{
+				Files.copy(local, target, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.COPY_ATTRIBUTES);
+				done += entry.size;
+				reporter.report("copy", "Copying unchanged Java files...", done, total);
+			}
+			else changed.add(entry);
+		}
+
+		// Download the changed files.
+		List<List<Entry>> ranges = coalesce(changed);
+		long fetched = 0;
+		if (!ranges.isEmpty()) {
+			List<URL> order = mirrors;
+			if (mirrors.size() > 1) {
+				try {
+					order = MirrorDownloader.rank(mirrors);
+				}
+				catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Delta update cancelled");
+				}
+			}
+			long toFetch = 0;
+			for (List<Entry> range : ranges) toFetch += rangeLength(range);
+			for (List<Entry> range : ranges) {
+				fetched += fetch(order, range, base, dest, top, fetched, toFetch, reporter);
+			}
+		}
+		Log.debug("Delta update of Java fetched " + fetched + " bytes in " +
+			ranges.size() + " requests");
+		return dest.toAbsolutePath();
+	}
+
+	/**
+	 * Generates the manifest of the given ZIP archive.
+	 *
+	 * @return The manifest lines, starting with {@link #HEADER}.
+	 */
+	static List<String> manifest(File zip) throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add(HEADER);
+		try (RandomAccessFile raf = new RandomAccessFile(zip, "r");
+			ZipFile zipFile = new ZipFile(zip))
+		{
+			for (Entry entry : centralDirectory(raf)) {
+				String digest = "-";
+				if (!entry.isDirectory()) {
+					ZipEntry zipEntry = zipFile.getEntry(entry.path);
+					MessageDigest md = DownloadCache.sha256();
+					try (InputStream in = zipFile.getInputStream(zipEntry)) {
+						byte[] buf = new byte[64 * 1024];
+						int r;
+						while ((r = in.read(buf)) > 0) md.update(buf, 0, r);
+					}
+					digest = DownloadCache.toHex(md.digest());
+				}
+				lines.add(new Entry(entry.path, entry.size, digest, entry.method,
+					entry.offset, entry.compressedSize).toString());
+			}
+		}
+		return lines;
+	}
+
+	static List<Entry> parse(List<String> lines) throws IOException {
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			throw new IOException("Not a Java manifest");
+		}
+		List<Entry> entries = new ArrayList<>();
+		for (String line : lines.subList(1, lines.size())) {
+			if (!line.isEmpty()) entries.add(Entry.parse(line));
+		}
+		return entries;
+	}
+
+	// -- Helper methods --
+
+	/** Gets the single top-level folder of the archive, e.g. {@code jdk-21/}. */
+	private static String topFolder(List<Entry> manifest) throws IOException {
+		String top = null;
+		for (Entry entry : manifest) {
+			int slash = entry.path.indexOf('/');
+			String folder = slash < 0 ? null : entry.path.substring(0, slash + 1);
+			if (folder == null || (top != null && !top.equals(folder))) {
+				throw new IOException("Archive lacks a single top-level folder");
+			}
+			top = folder;
+		}
+		if (top == null) throw new IOException("Empty manifest");
+		return top;
+	}
+
+	/**
+	 * Reads the central directory of a ZIP file, determining the offset of each
+	 * entry's compressed data. ZIP64 archives are not supported.
+	 */
+	private static List<Entry> centralDirectory(RandomAccessFile raf) throws IOException {
+		// Find the end of central directory record, which ends the file,
+		// followed only by a comment of at most 64K.
+		long length = raf.length();
+		int tail = (int) Math.min(length, 22 + 0xffff);
+		byte[] buf = new byte[tail];
+		raf.seek(length - tail);
+		raf.readFully(buf);
+		ByteBuffer bb = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+		int end = -1;
+		for (int i = tail - 22; i >= 0; i--) {
+			if (bb.getInt(i) == END_SIG) { end = i; break; }
+		}
+		if (end < 0) throw new IOException("Not a ZIP file");
+		int count = bb.getShort(end + 10) & 0xffff;
+		long cdSize = bb.getInt(end + 12) & 0xffffffffL;
+		long cdOffset = bb.getInt(end + 16) & 0xffffffffL;
+		if (count == 0xffff || cdOffset == 0xffffffffL) {
+			throw new IOException("ZIP64 archives are not supported");
+		}
+
+		byte[] cd = new byte[(int) cdSize];
+		raf.seek(cdOffset);
+		raf.readFully(cd);
+		ByteBuffer cb = ByteBuffer.wrap(cd).order(ByteOrder.LITTLE_ENDIAN);
+		List<Entry> entries = new ArrayList<>();
+		byte[] local = new byte[30];
+		int pos = 0;
+		for (int i = 0; i < count; i++) {
+			if (cb.getInt(pos) != CENTRAL_HEADER_SIG) throw new IOException("Corrupt ZIP directory");
+			int method = cb.getShort(pos + 10) & 0xffff;
+			long compressedSize = cb.getInt(pos + 20) & 0xffffffffL;
+			long size = cb.getInt(pos + 24) & 0xffffffffL;
+			int nameLength = cb.getShort(pos + 28) & 0xffff;
+			int extraLength = cb.getShort(pos + 30) & 0xffff;
+			int commentLength = cb.getShort(pos + 32) & 0xffff;
+			long headerOffset = cb.getInt(pos + 42) & 0xffffffffL;
+			String name = new String(cd, pos + 46, nameLength, StandardCharsets.UTF_8);
+
+			// The compressed data follows the local header, whose extra field
+			// may differ from the central one.
+			raf.seek(headerOffset);
+			raf.readFully(local);
+			ByteBuffer lb = ByteBuffer.wrap(local).order(ByteOrder.LITTLE_ENDIAN);
+			if (lb.getInt(0) != LOCAL_HEADER_SIG) throw new IOException("Corrupt ZIP entry: " + name);
+			long dataOffset = headerOffset + 30 +
+				(lb.getShort(26) & 0xffff) + (lb.getShort(28) & 0xffff);
+
+			entries.add(new Entry(name, size, null, method, dataOffset, compressedSize));
+			pos += 46 + nameLength + extraLength + commentLength;
+		}
+		return entries;
+	}
+
+	/** Gets the destination of the given entry, guarding against path traversal. */
+	private static Path target(Path dest, String top, Entry entry) throws IOException {
+		Path target = dest.resolve(entry.path.substring(top.length())).normalize();
+		if (!target.startsWith(dest)) {
+			throw new IOException("Entry is outside of the target dir: " + entry.path);
+		}
+		return target;
+	}
+
+	/**
+	 * Groups the given entries into byte ranges of the archive, merging entries
+	 * separated by at most {@link #MAX_GAP} bytes, so that closely packed
+	 * changes are fetched with a single request.
+	 */
+	static List<List<Entry>> coalesce(List<Entry> entries) {
+		List<Entry> sorted = new ArrayList<>(entries);
+		sorted.sort(Comparator.comparingLong(entry -> entry.offset));
+		List<List<Entry>> ranges = new ArrayList<>();
+		List<Entry> range = null;
+		long end = 0;
+		for (Entry entry : sorted) {
+			if (range == null || entry.offset - end > MAX_GAP) {
+				range = new ArrayList<>();
+				ranges.add(range);
+			}
+			range.add(entry);
+			end = Math.max(end, entry.offset + entry.compressedSize);
+		}
+		return ranges;
+	}
+
+	private static long rangeLength(List<Entry> range) {
+		long start = range.get(0).offset, end = start;
+		for (Entry entry : range) end = Math.max(end, entry.offset + entry.compressedSize);
+		return end - start;
+	}
+
+	/**
+	 * Downloads the given range of entries from the archive, then extracts
+	 * each of them.
+	 *
+	 * @return The number of bytes downloaded.
+	 */
+	private static long fetch(List<URL> mirrors, List<Entry> range, Path base,
+		Path dest, String top, long fetched, long toFetch, Reporter reporter)
+		throws IOException
+	{
+		for (Entry entry : range) {
+			if (entry.method != ZipEntry.STORED && entry.method != ZipEntry.DEFLATED) {
+				throw new IOException("Unsupported compression method: " + entry.method);
+			}
+		}
+		long start = range.get(0).offset;
+		long length = rangeLength(range);
+		File tmp = Files.createTempFile(JavaDelta.class.getName() + "-", ".part").toFile();
+		tmp.deleteOnExit();
+		try {
+			if (length > 0) {
+				Java.waitForTask(Downloader.downloadRange(mirrors, start, length, tmp,
+					p -> reporter.report("download", "Downloading Java changes...",
+						fetched + p.bytes(), toFetch)));
+			}
+			for (Entry entry : range) {
+				Path target = target(dest, top, entry);
+				try (InputStream in = Files.newInputStream(tmp.toPath())) {
+					skipFully(in, entry.offset - start);
+					extract(in, entry, target);
+				}
+				Path local = base.resolve(entry.path.substring(top.length()));
+				restoreExecutable(entry.path.substring(top.length()), local, target);
+			}
+		}
+		finally {
+			tmp.delete();
+		}
+		return length;
+	}
+
+	/**
+	 * Extracts the given entry from its compressed data, at the current
+	 * position of the given stream, into the given file, verifying its digest.
+	 */
+	private static void extract(InputStream data, Entry entry, Path target)
+		throws IOException
+	{
+		MessageDigest md = DownloadCache.sha256();
+		Inflater inflater = new Inflater(true);
+		long written = 0;
+		try (InputStream raw = new BoundedInputStream(data, entry.compressedSize);
+			InputStream in = entry.method == ZipEntry.STORED ? raw :
+				// NB: A raw inflater may need one byte beyond the compressed data.
+				new InflaterInputStream(new SequenceInputStream(raw,
+					new ByteArrayInputStream(new byte[1])), inflater);
+			OutputStream out = Files.newOutputStream(target))
+		{
+			byte[] buf = new byte[64 * 1024];
+			int r;
+			while ((r = in.read(buf)) > 0) {
+				md.update(buf, 0, r);
+				out.write(buf, 0, r);
+				written += r;
+			}
+		}
+		finally {
+			inflater.end();
+		}
+		if (written != entry.size || !entry.sha256.equals(DownloadCache.toHex(md.digest()))) {
+			throw new IOException("Checksum mismatch for " + entry.path);
+		}
+	}
+
+	/**
+	 * Makes a downloaded file executable if it is a program, i.e. resides in
+	 * the {@code bin} folder, or if the file it replaces was executable.
+	 * (The manifest does not record file permissions.)
+	 */
+	private static void restoreExecutable(String path, Path local, Path target) {
+		boolean executable = path.startsWith("bin/") ||
+			Files.isRegularFile(local) && Files.isExecutable(local);
+		if (executable && !target.toFile().setExecutable(true, false)) {
+			Log.debug("Cannot make executable: " + target);
+		}
+	}
+
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) throw new IOException("Truncated download");
+			n -= skipped;
+		}
+	}
+
+	/**
+	 * Reports progress to a subscriber at most once per percent, or to a
+	 * progress stream, which throttles on its own.
+	 */
+	private static class Reporter {
+		private final BiConsumer<String, Double> subscriber;
+		private final ProgressStream progress;
+		private String phase;
+		private long percent = -1;
+
+		Reporter(BiConsumer<String, Double> subscriber, ProgressStream progress) {
+			this.subscriber = subscriber;
+			this.progress = progress;
+		}
+
+		synchronized void report(String phase, String message, long done, long total) {
+			if (progress != null) {
+				progress.progress(phase, done, total);
+				return;
+			}
+			long p = total > 0 ? 100 * done / total : -1;
+			if (phase.equals(this.phase) && p == percent) return;
+			this.phase = phase;
+			percent = p;
+			subscriber.accept(message, total > 0 ? (double) done / total : Double.NaN);
+		}
+	}
+
+	/** Input stream limited to a given number of bytes. */
+	private static class BoundedInputStream extends FilterInputStream {
+		private long remaining;
+
+		BoundedInputStream(InputStream in, long limit) {
+			super(in);
+			remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) return -1;
+			int b = super.read();
+			if (b >= 0) remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) return -1;
+			int r = super.read(b, off, (int) Math.min(len, remaining));
+			if (r > 0) remaining -= r;
+			return r;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent index of the Java installations beneath a java-root folder.
+ * <p>
+ * The index is a small {@link Config} file inside the java-root, recording
+ * the modification time of the root and of each installation folder, along
+ * with each installation's parsed release file properties. On the next
+ * launch, entries whose folder modification times are unchanged are taken
+ * from the index as is, so a steady-state launch only stats a few folders:
+ * no directory listing, and no release file reading. Only new or modified
+ * folders are probed again.
+ * </p>
+ * <p>
+ * As with any mtime-based cache, modification times too close to the time of
+ * indexing cannot be trusted (file systems with coarse timestamps could miss
+ * a subsequent change), so such entries are not recorded and get revalidated
+ * next time.
+ * </p>
+ */
+final class JavaIndex {
+
+	private JavaIndex() { }
+
+	/** Name of the index file within the java-root folder. */
+	static final String INDEX_FILE = ".scijava-java-index";
+
+	/** Window within which modification times are considered unreliable. */
+	private static final long RACY_MILLIS = 3000;
+
+	private static final String ROOT_MTIME = "mtime";
+	private static final String COMPLETE = "complete";
+	private static final String DIR_MTIME = "/mtime";
+	private static final String NOT_JAVA = "/none";
+
+	/**
+	 * Gets the Java installations beneath the given folder, using and
+	 * updating its index as needed.
+	 *
+	 * @return The installations, ranked from best to worst.
+	 */
+	static List<JavaInstallation> installations(Path root) throws IOException {
+		File indexFile = root.resolve(INDEX_FILE).toFile();
+		Map<String, String> index = load(indexFile);
+		long now = System.currentTimeMillis();
+		long rootMtime = root.toFile().lastModified();
+
+		// Determine the candidate folders, listing the root only if it changed.
+		Set<String> dirs = new LinkedHashSet<>();
+		boolean rootUnchanged = rootMtime > 0 &&
+			String.valueOf(rootMtime).equals(index.get(ROOT_MTIME));
+		if (rootUnchanged) {
+			for (String key : index.keySet()) {
+				if (key.endsWith(DIR_MTIME)) {
+					dirs.add(key.substring(0, key.length() - DIR_MTIME.length()));
+				}
+			}
+		}
+		else {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, JavaInstallation::isCandidate)) {
+				for (Path dir : stream) dirs.add(dir.getFileName().toString());
+			}
+		}
+
+		// Reuse unchanged entries; probe the rest.
+		Map<String, String> newIndex = new LinkedHashMap<>();
+		List<JavaInstallation> result = new ArrayList<>();
+		List<Path> toProbe = new ArrayList<>();
+		List<Long> probeMtimes = new ArrayList<>();
+		boolean changed = !rootUnchanged;
+		for (String dir : dirs) {
+			Path home = root.resolve(dir);
+			// NB: Older indices may list trimmed runtimes, which are no candidates.
+			if (JavaTrimmer.isTrimmed(home)) { changed = true; continue; }
+			long mtime = home.toFile().lastModified();
+			if (mtime == 0) { changed = true; continue; } // Folder is gone.
+			String prefix = dir + "/";
+			if (String.valueOf(mtime).equals(index.get(dir + DIR_MTIME))) {
+				copyEntries(index, newIndex, prefix);
+				if (!index.containsKey(dir + NOT_JAVA)) {
+					result.add(JavaInstallation.of(home, release(index, prefix)));
+				}
+			}
+			else {
+				changed = true;
+				toProbe.add(home);
+				probeMtimes.add(mtime);
+			}
+		}
+		List<JavaInstallation> probed = JavaInstallation.probeAll(toProbe);
+		for (int i = 0; i < probed.size(); i++) {
+			JavaInstallation installation = probed.get(i);
+			String dir = toProbe.get(i).getFileName().toString();
+			if (installation != null) result.add(installation);
+			long mtime = probeMtimes.get(i);
+			if (now - mtime < RACY_MILLIS) continue; // Too fresh to trust.
+			if (dir.indexOf('=') >= 0) continue; // Not representable as a key.
+			newIndex.put(dir + DIR_MTIME, String.valueOf(mtime));
+			if (installation == null) newIndex.put(dir + NOT_JAVA, "true");
+			else {
+				for (Map.Entry<String, String> entry : installation.release().entrySet()) {
+					newIndex.put(dir + "/" + entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		if (changed) save(indexFile, root, newIndex, now);
+		JavaInstallation.rank(result);
+		return result;
+	}
+
+	/**
+	 * Revalidates the index of the given folder, e.g. after a new Java
+	 * installation has been unpacked into it.
+	 */
+	static void update(Path root) {
+		try {
+			installations(root);
+		}
+		catch (IOException e) {
+			Log.debug(e);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static Map<String, String> load(File indexFile) {
+		if (!indexFile.isFile()) return new LinkedHashMap<>();
+		try {
+			Map<String, String> index = Config.load(indexFile);
+			// Ignore incomplete index files, e.g. from an interrupted write.
+			if ("true".equals(index.get(COMPLETE))) return index;
+		}
+		catch (IOException e) {
+			Log.debug(e);
+		}
+		return new LinkedHashMap<>();
+	}
+
+	private static void save(File indexFile, Path root,
+		Map<String, String> entries, long now)
+	{
+		try {
+			// NB: Creating the index file modifies the root folder, so it must
+			// exist before the root's modification time is recorded. Afterwards,
+			// the file is rewritten in place, which leaves the root untouched.
+			if (!indexFile.exists()) indexFile.createNewFile();
+			long rootMtime = root.toFile().lastModified();
+			Map<String, String> index = new LinkedHashMap<>();
+			if (now - rootMtime >= RACY_MILLIS) {
+				index.put(ROOT_MTIME, String.valueOf(rootMtime));
+			}
+			index.putAll(entries);
+			index.put(COMPLETE, "true");
+			Config.save(indexFile, index);
+		}
+		catch (IOException | SecurityException e) {
+			// The index is only an optimization; e.g. a read-only java-root is fine.
+			Log.debug(e);
+		}
+	}
+
+	private static void copyEntries(Map<String, String> from,
+		Map<String, String> to, String prefix)
+	{
+		for (Map.Entry<String, String> entry : from.entrySet()) {
+			if (entry.getKey().startsWith(prefix)) to.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static Map<String, String> release(Map<String, String> index,
+		String prefix)
+	{
+		Map<String, String> release = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : index.entrySet()) {
+			String key = entry.getKey();
+			if (!key.startsWith(prefix)) continue;
+			String name = key.substring(prefix.length());
+			if (name.equals(DIR_MTIME.substring(1))) continue;
+			release.put(name, entry.getValue());
+		}
+		return release;
+	}
+}
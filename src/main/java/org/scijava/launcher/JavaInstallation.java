@@ -0,0 +1,384 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A Java installation on disk, described by the metadata in its
+ * {@code release} file.
+ * <p>
+ * Use {@link #discover(Path)} to find the installations beneath a folder.
+ * Candidate folders are probed concurrently, which matters when there are
+ * many of them on a high-latency file system such as NFS. The result is
+ * ranked from best to worst: newest version first, then most recently used.
+ * </p>
+ */
+public class JavaInstallation {
+
+	/** Name of the marker file whose modification time records last use. */
+	static final String LAST_USED_MARKER = ".scijava-last-used";
+
+	/** Maximum number of installations to probe in parallel. */
+	private static final int MAX_PROBE_THREADS = 8;
+
+	/** Ranks installations from best to worst. */
+	private static final Comparator<JavaInstallation> RANKING =
+		Comparator.comparing(JavaInstallation::javaVersion,
+			Comparator.nullsLast(Comparator.<JavaVersion> reverseOrder()))
+		.thenComparing(Comparator.comparingLong(JavaInstallation::lastUsed).reversed())
+		.thenComparing(JavaInstallation::home);
+
+	private final Path home;
+	private final Map<String, String> release;
+	private final String version;
+	private final JavaVersion javaVersion;
+	private final long lastUsed;
+	private volatile long size = -1;
+
+	private JavaInstallation(Path home, Map<String, String> release,
+		long lastUsed)
+	{
+		this.home = home;
+		this.release = Collections.unmodifiableMap(release);
+		this.version = releaseVersion(release);
+		this.javaVersion = JavaVersion.tryParse(version);
+		this.lastUsed = lastUsed;
+	}
+
+	/**
+	 * Reads the Java installation at the given folder.
+	 *
+	 * @param home The folder containing the installation's {@code release} file.
+	 * @return The installation, or {@code null} if there is no release file.
+	 */
+	public static JavaInstallation probe(Path home) {
+		Path releaseFile = home.resolve("release");
+		if (!Files.isRegularFile(releaseFile)) return null;
+		return of(home, readRelease(releaseFile));
+	}
+
+	/**
+	 * Creates a Java installation from already known release file properties.
+	 */
+	static JavaInstallation of(Path home, Map<String, String> release) {
+		File marker = home.resolve(LAST_USED_MARKER).toFile();
+		return new JavaInstallation(home, release, marker.lastModified());
+	}
+
+	/**
+	 * Discovers the Java installations residing directly beneath the given
+	 * folder, probing them concurrently.
+	 *
+	 * @param root The folder to search, e.g. {@link Java#root()}.
+	 * @return The installations found, ranked from best to worst.
+	 */
+	public static List<JavaInstallation> discover(Path root) throws IOException {
+		List<Path> candidates = new ArrayList<>();
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, JavaInstallation::isCandidate)) {
+			for (Path dir : dirs) candidates.add(dir);
+		}
+		List<JavaInstallation> result = new ArrayList<>();
+		for (JavaInstallation installation : probeAll(candidates)) {
+			if (installation != null) result.add(installation);
+		}
+		rank(result);
+		return result;
+	}
+
+	/**
+	 * Gets whether the given path might be a Java installation folder. Hidden
+	 * folders, such as those of in-progress upgrades, never are; nor are
+	 * {@link JavaTrimmer trimmed runtimes}, which only suit the application
+	 * they were built for.
+	 */
+	static boolean isCandidate(Path path) {
+		return Files.isDirectory(path) &&
+			!path.getFileName().toString().startsWith(".") &&
+			!JavaTrimmer.isTrimmed(path);
+	}
+
+	/**
+	 * Probes the given folders concurrently.
+	 *
+	 * @return The probed installations, in the same order as the given folders,
+	 *         with {@code null} for folders that are not Java installations.
+	 */
+	static List<JavaInstallation> probeAll(List<Path> dirs) throws IOException {
+		List<JavaInstallation> result = new ArrayList<>();
+		if (dirs.size() <= 1) {
+			for (Path dir : dirs) result.add(probe(dir));
+			return result;
+		}
+		int threads = Math.min(dirs.size(), MAX_PROBE_THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "JavaInstallation-Probe");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Callable<JavaInstallation>> probes = new ArrayList<>();
+			for (Path dir : dirs) probes.add(() -> probe(dir));
+			for (Future<JavaInstallation> f : executor.invokeAll(probes)) {
+				result.add(f.get());
+			}
+		}
+		catch (InterruptedException | ExecutionException e) {
+			throw new IOException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return result;
+	}
+
+	/** Sorts the given installations from best to worst. */
+	static void rank(List<JavaInstallation> installations) {
+		installations.sort(RANKING);
+	}
+
+	/**
+	 * Gets the best of the given installations that is built for the target
+	 * architecture and at least the given version.
+	 *
+	 * @param installations Installations ranked from best to worst,
+	 *                       as returned by {@link #discover(Path)}.
+	 * @param minimumVersion The minimum acceptable Java version.
+	 * @return The best match, or {@code null} if none is good enough.
+	 */
+	public static JavaInstallation best(List<JavaInstallation> installations,
+		String minimumVersion)
+	{
+		for (JavaInstallation installation : installations) {
+			if (installation.version() == null) continue;
+			if (!installation.isTargetArch()) continue;
+			if (Java.compareVersions(installation.version(), minimumVersion) < 0) continue;
+			return installation;
+		}
+		return null;
+	}
+
+	/** Gets the installation's folder. */
+	public Path home() {
+		return home;
+	}
+
+	/** Gets the installation's release file properties. */
+	public Map<String, String> release() {
+		return release;
+	}
+
+	/**
+	 * Gets the installation's Java version string: {@code JAVA_RUNTIME_VERSION}
+	 * if it is a valid Java version (it includes the build number, but not all
+	 * vendors write it), or else {@code JAVA_VERSION}. Returns {@code null} if
+	 * neither is present.
+	 */
+	public String version() {
+		return version;
+	}
+
+	/** Gets the installation's parsed Java version, or {@code null} if unparseable. */
+	public JavaVersion javaVersion() {
+		return javaVersion;
+	}
+
+	/** Gets the installation's architecture ({@code OS_ARCH}), or {@code null}. */
+	public String arch() {
+		return release.get("OS_ARCH");
+	}
+
+	/** Gets the installation's vendor ({@code IMPLEMENTOR}), or {@code null}. */
+	public String vendor() {
+		return release.get("IMPLEMENTOR");
+	}
+
+	/**
+	 * Gets when the installation was last used to launch the application,
+	 * in milliseconds since the epoch, or 0 if unknown.
+	 */
+	public long lastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Gets the total size in bytes of the installation's files.
+	 * This is computed on first call, by walking the installation's folder.
+	 */
+	public long size() {
+		if (size < 0) size = du(home);
+		return size;
+	}
+
+	/** Gets whether the installation is built for the target architecture. */
+	public boolean isTargetArch() {
+		return isTargetArch(arch());
+	}
+
+	@Override
+	public String toString() {
+		return home + " [" + version + ", " + arch() + ", " + vendor() + "]";
+	}
+
+	/**
+	 * Records that the Java installation at the given folder is being used now.
+	 * Does nothing if the folder is not writable, e.g. on a read-only shared
+	 * java-root; the installation's last use then simply remains unknown.
+	 */
+	static void markUsed(Path home) {
+		Path marker = home.resolve(LAST_USED_MARKER);
+		try {
+			if (!Files.exists(marker)) {
+				if (!Files.isWritable(home)) return;
+				Files.createFile(marker);
+			}
+			else if (!marker.toFile().setLastModified(System.currentTimeMillis())) {
+				Log.debug("Cannot update last use of read-only Java: " + home);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			// NB: Never let bookkeeping get in the way of the launch.
+			Log.debug(e);
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Reads the given Java installation {@code release} file, which consists of
+	 * {@code KEY="value"} lines such as {@code JAVA_VERSION}, {@code IMPLEMENTOR},
+	 * {@code OS_ARCH} and {@code JAVA_RUNTIME_VERSION}. Returns an empty map if
+	 * the file cannot be read.
+	 */
+	static Map<String, String> readRelease(Path releasePath) {
+		try {
+			Map<String, String> release = Config.load(releasePath.toFile());
+			release.replaceAll((key, value) -> value.trim().replaceAll("^\"|\"$", ""));
+			return release;
+		}
+		catch (IOException e) {
+			Log.debug(e);
+			return Collections.emptyMap();
+		}
+	}
+
+	private static String releaseVersion(Map<String, String> release) {
+		String v = release.get("JAVA_RUNTIME_VERSION");
+		if (JavaVersion.tryParse(v) == null) v = release.get("JAVA_VERSION");
+		return v == null || v.isEmpty() ? null : v;
+	}
+
+	/**
+	 * Gets whether the given {@code OS_ARCH} value of a release file matches the
+	 * target architecture: that named by {@code scijava.app.java-platform}
+	 * (e.g. {@code linux-x64}), or else that of the running JVM.
+	 */
+	static boolean isTargetArch(String osArch) {
+		if (osArch == null || osArch.isEmpty()) return true; // Unknown; assume OK.
+		String platform = System.getProperty("scijava.app.java-platform");
+		if (platform != null && platform.toLowerCase().contains("universal")) {
+			return true; // A multi-architecture platform, e.g. macos-universal.
+		}
+		String target = platformArch(platform);
+		if (target == null) target = knownArch(System.getProperty("os.arch"));
+		return target == null || target.equals(knownArch(osArch));
+	}
+
+	/**
+	 * Gets the architecture named by the given platform, e.g. {@code x64} for
+	 * {@code linux-x64} or {@code linux-x64-musl}. Platform names are up to the
+	 * application, so any of their dash-separated parts may name the
+	 * architecture, or none at all.
+	 *
+	 * @return The normalized architecture, or {@code null} if not recognized.
+	 */
+	static String platformArch(String platform) {
+		if (platform == null) return null;
+		for (String part : platform.split("-")) {
+			String arch = knownArch(part);
+			if (arch != null) return arch;
+		}
+		return null;
+	}
+
+	/** Normalizes the given architecture name, or returns {@code null} if unknown. */
+	private static String knownArch(String arch) {
+		if (arch == null) return null;
+		switch (arch.toLowerCase()) {
+			case "amd64": case "x86_64": case "x64": return "x64";
+			case "aarch64": case "arm64": return "arm64";
+			case "x86": case "x32": case "i386": case "i486": case "i586": case "i686": return "x86";
+			case "arm": case "arm32": case "aarch32": return "arm32";
+			case "ppc64le": return "ppc64le";
+			case "s390x": return "s390x";
+			case "riscv64": return "riscv64";
+			default: return null;
+		}
+	}
+
+	private static long du(Path dir) {
+		long[] total = {0};
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					total[0] += attrs.size();
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException e) {
+			Log.debug(e);
+		}
+		return total[0];
+	}
+}
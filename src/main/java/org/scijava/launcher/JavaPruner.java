@@ -0,0 +1,275 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garbage collector for Java installations beneath the java-root, which
+ * would otherwise accumulate with every upgrade.
+ * <p>
+ * Installations are evicted least recently used first, until at most
+ * {@code scijava.app.java-keep} of them remain, and their total size is at
+ * most {@code scijava.app.java-keep-size} megabytes. Pruning only happens if
+ * at least one of these system properties is set. An installation's recency
+ * is when it was last used to launch the application (see
+ * {@link JavaInstallation#lastUsed()}), or when it was installed, if later.
+ * </p>
+ * <p>
+ * Never evicted are the running Java, the Java configured as {@code jvm-dir},
+ * and any installation used within the past day, which might be in use by
+ * another process sharing the java-root.
+ * </p>
+ * <p>
+ * {@link JavaTrimmer Trimmed runtimes} are not installations to choose among;
+ * apart from those protected as above, they are evicted regardless of the
+ * budget, since every upgrade builds a new one.
+ * </p>
+ */
+final class JavaPruner {
+
+	/** Prefix of installation folders in the process of being deleted. */
+	static final String TRASH_PREFIX = ".trash-";
+
+	/** Minimum time since last use, before an installation may be evicted. */
+	static final long GRACE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private static Thread pruner;
+
+	private JavaPruner() { }
+
+	/** Gets whether pruning is enabled, i.e. some budget is configured. */
+	static boolean isEnabled() {
+		return maxCount() < Integer.MAX_VALUE || maxBytes() < Long.MAX_VALUE;
+	}
+
+	/** Starts pruning the java-root on a low-priority background thread. */
+	static synchronized void start() {
+		if (pruner != null && pruner.isAlive()) return;
+		pruner = new Thread(() -> {
+			try {
+				Path root = Java.root();
+				if (root == null) return;
+				try (UpgradeLock lock = UpgradeLock.acquire(root, null)) {
+					prune(root, protectedHomes(), maxCount(), maxBytes(),
+						System.currentTimeMillis());
+				}
+			}
+			catch (Throwable t) {
+				Log.debug("Pruning of Java installations failed");
+				Log.debug(t);
+			}
+		}, "Java-Pruner");
+		pruner.setPriority(Thread.MIN_PRIORITY);
+		// Don't let this thread prevent shutdown of the JVM.
+		pruner.setDaemon(true);
+		pruner.start();
+	}
+
+	/**
+	 * Evicts the least recently used Java installations beneath the given root,
+	 * beyond the given budget.
+	 *
+	 * @param root The java-root folder.
+	 * @param keep Folders whose installations are never to evict: installation
+	 *          folders, or folders within them, such as the {@code Contents/Home}
+	 *          folder of a macOS bundle.
+	 * @param maxCount Maximum number of installations to keep.
+	 * @param maxBytes Maximum total size of the installations to keep.
+	 * @param now The current time, in milliseconds since the epoch.
+	 * @return The installation folders evicted.
+	 */
+	static List<Path> prune(Path root, Set<Path> keep, int maxCount,
+		long maxBytes, long now) throws IOException
+	{
+		purgeTrash(root);
+		List<JavaInstallation> installations = new ArrayList<>(JavaIndex.installations(root));
+		// Most recently used first.
+		installations.sort(Comparator.comparingLong(JavaPruner::recency).reversed());
+
+		Set<Path> kept = new LinkedHashSet<>();
+		for (JavaInstallation java : installations) {
+			if (isProtected(java.home(), keep)) kept.add(java.home());
+		}
+		int count = kept.size();
+		long bytes = 0;
+		for (JavaInstallation java : installations) {
+			if (kept.contains(java.home())) bytes += java.size();
+		}
+
+		List<Path> evicted = new ArrayList<>();
+		for (JavaInstallation java : installations) {
+			if (kept.contains(java.home())) continue;
+			boolean fits = count + 1 <= maxCount && bytes + java.size() <= maxBytes;
+			if (fits || now - recency(java) < GRACE_MILLIS) {
+				count++;
+				bytes += java.size();
+				continue;
+			}
+			Log.debug("Evicting Java installation: " + java);
+			if (delete(root, java.home())) evicted.add(java.home());
+		}
+		evicted.addAll(pruneTrimmed(root, keep, now));
+		if (!evicted.isEmpty()) JavaIndex.update(root);
+		return evicted;
+	}
+
+	// -- Helper methods --
+
+	private static int maxCount() {
+		String keep = System.getProperty("scijava.app.java-keep");
+		if (keep == null) return Integer.MAX_VALUE;
+		try {
+			return Math.max(0, Integer.parseInt(keep.trim()));
+		}
+		catch (NumberFormatException exc) {
+			Log.debug(exc);
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	private static long maxBytes() {
+		String keepSize = System.getProperty("scijava.app.java-keep-size");
+		if (keepSize == null) return Long.MAX_VALUE;
+		try {
+			return Math.max(0, Long.parseLong(keepSize.trim())) * 1024 * 1024;
+		}
+		catch (NumberFormatException exc) {
+			Log.debug(exc);
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/** Gets the installations that must not be evicted. */
+	private static Set<Path> protectedHomes() {
+		Set<Path> homes = new LinkedHashSet<>();
+		Path managedHome = Java.managedHome();
+		if (managedHome != null) homes.add(normalize(managedHome));
+		Path jvmDir = jvmDir();
+		if (jvmDir != null) homes.add(normalize(jvmDir));
+		return homes;
+	}
+
+	/** Gets the Java installation configured as {@code jvm-dir}, if any. */
+	private static Path jvmDir() {
+		String configFile = System.getProperty("scijava.app.config-file");
+		if (configFile == null || configFile.isEmpty()) return null;
+		File file = new File(configFile);
+		if (!file.isFile()) return null;
+		try {
+			Map<String, String> config = Config.load(file);
+			String jvmDir = config.get("jvm-dir");
+			if (jvmDir == null || jvmDir.isEmpty()) return null;
+			Path path = Paths.get(jvmDir);
+			Path appDir = ClassLauncher.appDir();
+			return path.isAbsolute() || appDir == null ? path : appDir.resolve(path);
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/** Evicts the trimmed runtimes which are neither protected nor recently used. */
+	private static List<Path> pruneTrimmed(Path root, Set<Path> keep, long now) {
+		List<Path> evicted = new ArrayList<>();
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root,
+			dir -> Files.isDirectory(dir) && JavaTrimmer.isTrimmed(dir)))
+		{
+			for (Path dir : dirs) {
+				if (isProtected(dir, keep)) continue;
+				JavaInstallation java = JavaInstallation.probe(dir);
+				if (java != null && now - recency(java) < GRACE_MILLIS) continue;
+				Log.debug("Evicting trimmed Java runtime: " + dir);
+				if (delete(root, dir)) evicted.add(dir);
+			}
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+		}
+		return evicted;
+	}
+
+	/** Gets whether any of the given folders is the given home, or within it. */
+	private static boolean isProtected(Path home, Set<Path> keep) {
+		Path normalized = normalize(home);
+		for (Path path : keep) {
+			if (path.startsWith(normalized)) return true;
+		}
+		return false;
+	}
+
+	private static long recency(JavaInstallation java) {
+		return Math.max(java.lastUsed(), java.home().toFile().lastModified());
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Deletes the given installation, first renaming it to a hidden name, so
+	 * that a partial deletion never looks like an installation.
+	 */
+	private static boolean delete(Path root, Path home) {
+		Path trash = root.resolve(TRASH_PREFIX + home.getFileName());
+		try {
+			Files.move(home, trash);
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			return false;
+		}
+		StagedUpgrade.delete(trash.toFile());
+		return true;
+	}
+
+	/** Deletes the remains of interrupted deletions. */
+	private static void purgeTrash(Path root) {
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, TRASH_PREFIX + "*")) {
+			for (Path dir : dirs) StagedUpgrade.delete(dir.toFile());
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Builds a trimmed Java runtime from a freshly installed JDK, holding only
+ * the modules the application needs.
+ * <p>
+ * The modules are determined by running the JDK's {@code jdeps} tool over the
+ * application's JAR files, then the runtime is built by its {@code jlink}
+ * tool, compressed and without debug information, header files or man pages.
+ * A trimmed runtime is a fraction of the JDK's size, and starts faster.
+ * Trimming only happens if the {@code scijava.app.java-trim} system property
+ * is set to {@code true}.
+ * </p>
+ * <p>
+ * Modules used only reflectively, or as service providers, are invisible to
+ * {@code jdeps}; list them in {@code scijava.app.java-trim-modules}, comma
+ * separated. Besides those, {@link #DEFAULT_MODULES} are always included.
+ * </p>
+ * <p>
+ * A trimmed runtime is not an ordinary Java installation: it only suits the
+ * JAR files it was built for. So it is never discovered, ranked, adopted or
+ * used as a base for other installations (see
+ * {@link JavaInstallation#isCandidate(Path)}). Instead, it records the JAR
+ * files and modules it was built for in its {@link #INFO_FILE}; once these
+ * {@link #isStale(Path) change}, the launcher falls back to the full JDK.
+ * </p>
+ */
+final class JavaTrimmer {
+
+	/** Suffix of the trimmed runtime's folder name. */
+	static final String SUFFIX = "-trimmed";
+
+	/** Name of the file recording what a trimmed runtime was built for. */
+	static final String INFO_FILE = ".scijava-trim";
+
+	/**
+	 * Modules included regardless of the analysis: elliptic curve crypto for
+	 * TLS, and the zip file system, both reached via service lookup only.
+	 */
+	static final List<String> DEFAULT_MODULES =
+		Arrays.asList("java.base", "jdk.crypto.ec", "jdk.zipfs");
+
+	private JavaTrimmer() { }
+
+	/** Gets whether trimming of new Java installations is enabled. */
+	static boolean isEnabled() {
+		return Boolean.getBoolean("scijava.app.java-trim");
+	}
+
+	/** Gets whether the given folder is that of a trimmed runtime. */
+	static boolean isTrimmed(Path dir) {
+		return dir.getFileName() != null &&
+			dir.getFileName().toString().endsWith(SUFFIX);
+	}
+
+	/**
+	 * Gets whether the given trimmed runtime was built for other JAR files or
+	 * extra modules than the application's current ones, in which case it may
+	 * lack modules the application needs.
+	 */
+	static boolean isStale(Path runtime) {
+		if (!isTrimmed(runtime)) return false;
+		Map<String, String> info = info(runtime);
+		return info == null ||
+			!jarsDigest(Preflight.classPathJars()).equals(info.get("jars")) ||
+			!String.join(",", new TreeSet<>(extraModules())).equals(info.get("extra-modules"));
+	}
+
+	/**
+	 * Gets the JDK from which the given trimmed runtime was built, or
+	 * {@code null} if it is unknown or gone.
+	 */
+	static Path source(Path runtime) {
+		Map<String, String> info = info(runtime);
+		String jdk = info == null ? null : info.get("jdk");
+		if (jdk == null) return null;
+		Path path = Paths.get(jdk);
+		return Files.isDirectory(path) ? path : null;
+	}
+
+	/**
+	 * Builds a trimmed runtime from the given JDK, for the application's JAR
+	 * files on the class path.
+	 *
+	 * @return The trimmed runtime's folder within the java-root, or
+	 *          {@code null} if trimming failed, e.g. because the installation
+	 *          is not a JDK.
+	 */
+	static Path tryTrim(Path jdk, Path root, BiConsumer<String, Double> subscriber)
+		throws InterruptedIOException
+	{
+		subscriber.accept("Trimming Java...", Double.NaN);
+		try {
+			return trim(jdk, root, Preflight.classPathJars(), extraModules());
+		}
+		catch (InterruptedIOException exc) {
+			throw exc;
+		}
+		catch (IOException exc) {
+			Log.debug("Could not trim " + jdk);
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Builds a trimmed runtime from the given JDK, for the given JAR files.
+	 *
+	 * @param jdk The JDK folder.
+	 * @param root The java-root, into which the runtime is written.
+	 * @param jars The JAR files to analyze for the modules they need.
+	 * @param extraModules Additional modules to include.
+	 * @return The trimmed runtime's folder within the java-root.
+	 */
+	static Path trim(Path jdk, Path root, List<File> jars,
+		Collection<String> extraModules) throws IOException
+	{
+		Path home = Files.isRegularFile(jdk.resolve("release")) ? jdk :
+			jdk.resolve("Contents").resolve("Home"); // macOS bundle layout.
+		Path jdeps = tool(home, "jdeps");
+		Path jlink = tool(home, "jlink");
+		JavaInstallation installation = JavaInstallation.probe(home);
+		if (installation == null || installation.javaVersion() == null) {
+			throw new IOException("Unknown Java version: " + home);
+		}
+		int feature = installation.javaVersion().feature();
+
+		// Determine the modules needed, among those available.
+		Set<String> modules = new TreeSet<>(DEFAULT_MODULES);
+		modules.addAll(extraModules);
+		if (!jars.isEmpty()) modules.addAll(requiredModules(jdeps, feature, jars));
+		modules.retainAll(availableModules(home));
+
+		Path target = root.resolve(jdk.getFileName() + SUFFIX);
+		if (Files.exists(target)) throw new IOException("Already exists: " + target);
+		Path staging = root.resolve(StagedUpgrade.STAGING_PREFIX + target.getFileName());
+		StagedUpgrade.delete(staging.toFile());
+		try {
+			Log.debug("Linking " + modules + " into " + staging);
+			run(Arrays.asList(jlink.toString(),
+				"--add-modules", String.join(",", modules),
+				// NB: Numbered compression levels are deprecated since Java 21.
+				"--compress=" + (feature >= 21 ? "zip-6" : "2"),
+				"--strip-debug", "--no-header-files", "--no-man-pages",
+				"--output", staging.toString()));
+
+			String error = StagedUpgrade.verify(staging);
+			if (error != null) throw new IOException("Invalid trimmed Java: " + error);
+
+			// Record what the runtime was built for, to notice when it changes.
+			Map<String, String> info = new LinkedHashMap<>();
+			info.put("jdk", jdk.toAbsolutePath().normalize().toString());
+			info.put("jars", jarsDigest(jars));
+			info.put("extra-modules", String.join(",", new TreeSet<>(extraModules)));
+			info.put("modules", String.join(",", modules));
+			Config.save(staging.resolve(INFO_FILE).toFile(), info);
+			try {
+				Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException exc) {
+				Files.move(staging, target);
+			}
+			return target.toAbsolutePath();
+		}
+		finally {
+			StagedUpgrade.delete(staging.toFile());
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Reads the given trimmed runtime's {@link #INFO_FILE}, if any. */
+	private static Map<String, String> info(Path runtime) {
+		File file = runtime.resolve(INFO_FILE).toFile();
+		if (!file.isFile()) return null;
+		try {
+			return Config.load(file);
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Digests the given JAR files' paths, sizes and modification times, so that
+	 * any added, removed or updated JAR file changes the digest.
+	 */
+	static String jarsDigest(List<File> jars) {
+		Set<String> lines = new TreeSet<>();
+		for (File jar : jars) {
+			lines.add(jar.getAbsolutePath() + " " + jar.length() + " " + jar.lastModified());
+		}
+		return DownloadCache.sha256(String.join("\n", lines));
+	}
+
+	/** Gets the extra modules requested via {@code scijava.app.java-trim-modules}. */
+	private static List<String> extraModules() {
+		List<String> modules = new ArrayList<>();
+		String value = System.getProperty("scijava.app.java-trim-modules", "");
+		for (String module : value.split(",")) {
+			if (!module.trim().isEmpty()) modules.add(module.trim());
+		}
+		return modules;
+	}
+
+	/** Runs {@code jdeps} to find the modules needed by the given JAR files. */
+	private static List<String> requiredModules(Path jdeps, int feature,
+		List<File> jars) throws IOException
+	{
+		List<String> command = new ArrayList<>(Arrays.asList(jdeps.toString(),
+			"--print-module-deps", "--ignore-missing-deps",
+			"--multi-release", String.valueOf(feature), "-q"));
+		for (File jar : jars) command.add(jar.getAbsolutePath());
+		List<String> modules = new ArrayList<>();
+		for (String line : run(command)) {
+			for (String module : line.trim().split(",")) {
+				if (!module.isEmpty()) modules.add(module);
+			}
+		}
+		return modules;
+	}
+
+	/** Gets the names of the modules of the given Java installation. */
+	private static Set<String> availableModules(Path home) throws IOException {
+		Path java = Relaunch.executable(home);
+		if (java == null) throw new IOException("No java executable: " + home);
+		Set<String> modules = new TreeSet<>();
+		for (String line : run(Arrays.asList(java.toString(), "--list-modules"))) {
+			// Lines are of the form: java.base@21.0.4
+			int at = line.indexOf('@');
+			String module = (at < 0 ? line : line.substring(0, at)).trim();
+			if (!module.isEmpty()) modules.add(module);
+		}
+		return modules;
+	}
+
+	private static Path tool(Path home, String name) throws IOException {
+		for (String file : Arrays.asList(name, name + ".exe")) {
+			Path tool = home.resolve("bin").resolve(file);
+			if (Files.isRegularFile(tool)) return tool;
+		}
+		throw new IOException("No " + name + " tool in " + home + "; not a JDK?");
+	}
+
+	/**
+	 * Runs the given command, returning its output.
+	 *
+	 * @throws IOException If the command fails.
+	 */
+	private static List<String> run(List<String> command) throws IOException {
+		File output = Files.createTempFile("scijava-trim-", ".txt").toFile();
+		try {
+			// NB: Output goes to a file, so that waiting stays interruptible.
+			Process p = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(output).start();
+			try {
+				int exitCode = p.waitFor();
+				List<String> lines = Files.readAllLines(output.toPath());
+				if (exitCode != 0) {
+					throw new IOException(new File(command.get(0)).getName() +
+						" failed with exit code " + exitCode + ": " + String.join("\n", lines));
+				}
+				return lines;
+			}
+			catch (InterruptedException exc) {
+				p.destroy();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted running " + command.get(0));
+			}
+		}
+		finally {
+			output.delete();
+		}
+	}
+}
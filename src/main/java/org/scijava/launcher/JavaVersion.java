@@ -0,0 +1,245 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Java runtime version, as described by
+ * <a href="https://openjdk.org/jeps/223">JEP 223</a>.
+ * <p>
+ * Both modern version strings such as {@code 21}, {@code 21.0.4+7},
+ * {@code 17-ea} or {@code 21.0.4+7-LTS}, and legacy ones such as
+ * {@code 1.8}, {@code 1.8.0_402} or {@code 1.8.0_402-b06} are understood.
+ * Legacy versions are normalized, so that {@code 1.8.0_402} is treated as
+ * feature release 8, update 402. (Java 9+ offers {@code Runtime.Version} for
+ * this purpose, but the launcher must also run on Java 8.)
+ * </p>
+ * <p>
+ * Versions compare by their numeric elements first, with missing trailing
+ * elements treated as zero (so {@code 21} equals {@code 21.0.0}), then by
+ * pre-release identifier (a release is newer than any of its pre-releases),
+ * then by build number. Optional vendor information is ignored.
+ * </p>
+ */
+public final class JavaVersion implements Comparable<JavaVersion> {
+
+	private final String version;
+	private final int[] numbers;
+	private final String pre;
+	private final int build;
+	private final String optional;
+
+	private JavaVersion(String version, int[] numbers, String pre, int build,
+		String optional)
+	{
+		this.version = version;
+		this.numbers = numbers;
+		this.pre = pre;
+		this.build = build;
+		this.optional = optional;
+	}
+
+	/**
+	 * Parses the given Java version string.
+	 *
+	 * @param version The version string, e.g. the value of the
+	 *                 {@code java.version} system property.
+	 * @return The parsed version.
+	 * @throws IllegalArgumentException if the string is not a Java version.
+	 */
+	public static JavaVersion parse(String version) {
+		String s = version.trim();
+		if (s.length() > 1 && s.startsWith("\"") && s.endsWith("\"")) {
+			s = s.substring(1, s.length() - 1);
+		}
+		int[] pos = {0};
+		List<Integer> numbers = new ArrayList<>();
+		numbers.add(readNumber(s, pos, version));
+		while (pos[0] < s.length() && s.charAt(pos[0]) == '.' &&
+			pos[0] + 1 < s.length() && isDigit(s.charAt(pos[0] + 1)))
+		{
+			pos[0]++;
+			numbers.add(readNumber(s, pos, version));
+		}
+
+		String pre = null, optional = null;
+		int build = 0;
+		if (numbers.get(0) == 1 && numbers.size() > 1) {
+			// Legacy version: 1.<feature>.<interim>_<update>-b<build>
+			numbers.remove(0);
+			if (pos[0] < s.length() && s.charAt(pos[0]) == '_') {
+				pos[0]++;
+				while (numbers.size() < 2) numbers.add(0);
+				numbers.add(readNumber(s, pos, version));
+			}
+			if (pos[0] < s.length() && s.charAt(pos[0]) == '-') {
+				String suffix = s.substring(pos[0] + 1);
+				if (suffix.matches("b\\d+")) build = Integer.parseInt(suffix.substring(1));
+				else pre = suffix;
+				pos[0] = s.length();
+			}
+		}
+		else {
+			// JEP 223 version: $VNUM(-$PRE)?(\+$BUILD)?(-$OPT)?
+			if (pos[0] < s.length() && s.charAt(pos[0]) == '-') {
+				int end = indexOf(s, pos[0] + 1, '+', '-');
+				pre = s.substring(pos[0] + 1, end);
+				pos[0] = end;
+			}
+			if (pos[0] < s.length() && s.charAt(pos[0]) == '+') {
+				pos[0]++;
+				if (pos[0] < s.length() && isDigit(s.charAt(pos[0]))) {
+					build = readNumber(s, pos, version);
+				}
+			}
+			if (pos[0] < s.length() && s.charAt(pos[0]) == '-') {
+				optional = s.substring(pos[0] + 1);
+				pos[0] = s.length();
+			}
+		}
+		if (pos[0] < s.length()) {
+			// Unrecognized trailing content; keep it, but only as vendor info.
+			optional = s.substring(pos[0]);
+		}
+		if (pre != null && pre.isEmpty()) pre = null;
+
+		int[] nums = new int[numbers.size()];
+		for (int i = 0; i < nums.length; i++) nums[i] = numbers.get(i);
+		return new JavaVersion(version, nums, pre, build, optional);
+	}
+
+	/**
+	 * Parses the given Java version string, returning {@code null} rather than
+	 * throwing an exception if it is not a Java version.
+	 */
+	public static JavaVersion tryParse(String version) {
+		if (version == null) return null;
+		try {
+			return parse(version);
+		}
+		catch (IllegalArgumentException exc) {
+			Log.debug(exc);
+			return null;
+		}
+	}
+
+	/** Gets the feature release number, e.g. 8 for 1.8.0_402, or 21 for 21.0.4. */
+	public int feature() {
+		return numbers[0];
+	}
+
+	/** Gets the numeric version elements, e.g. [21, 0, 4] for 21.0.4+7. */
+	public int[] numbers() {
+		return numbers.clone();
+	}
+
+	/** Gets the pre-release identifier, e.g. "ea", or {@code null} if none. */
+	public String pre() {
+		return pre;
+	}
+
+	/** Gets the build number, or 0 if unknown. */
+	public int build() {
+		return build;
+	}
+
+	/** Gets the optional (typically vendor-specific) information, or {@code null}. */
+	public String optional() {
+		return optional;
+	}
+
+	@Override
+	public int compareTo(JavaVersion that) {
+		int count = Math.max(numbers.length, that.numbers.length);
+		for (int i = 0; i < count; i++) {
+			int n1 = i < numbers.length ? numbers[i] : 0;
+			int n2 = i < that.numbers.length ? that.numbers[i] : 0;
+			if (n1 != n2) return n1 < n2 ? -1 : 1;
+		}
+		// A release is newer than any of its pre-releases.
+		if (pre == null && that.pre != null) return 1;
+		if (pre != null && that.pre == null) return -1;
+		if (pre != null) {
+			int c = pre.compareTo(that.pre);
+			if (c != 0) return c;
+		}
+		return Integer.compare(build, that.build);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof JavaVersion && compareTo((JavaVersion) o) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		// NB: Trailing zeros do not count, for consistency with equals.
+		int end = numbers.length;
+		while (end > 1 && numbers[end - 1] == 0) end--;
+		return 31 * (31 * Arrays.hashCode(Arrays.copyOf(numbers, end)) +
+			(pre == null ? 0 : pre.hashCode())) + build;
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+
+	// -- Helper methods --
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int readNumber(String s, int[] pos, String version) {
+		int start = pos[0];
+		while (pos[0] < s.length() && isDigit(s.charAt(pos[0]))) pos[0]++;
+		if (pos[0] == start) {
+			throw new IllegalArgumentException("Not a Java version: " + version);
+		}
+		try {
+			return Integer.parseInt(s.substring(start, pos[0]));
+		}
+		catch (NumberFormatException exc) {
+			throw new IllegalArgumentException("Not a Java version: " + version, exc);
+		}
+	}
+
+	private static int indexOf(String s, int from, char c1, char c2) {
+		for (int i = from; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == c1 || c == c2) return i;
+		}
+		return s.length();
+	}
+}
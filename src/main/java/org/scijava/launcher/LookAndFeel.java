@@ -30,6 +30,10 @@
 package org.scijava.launcher;
 
 import javax.swing.UIManager;
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
 
 public final class LookAndFeel {
 
@@ -41,6 +45,33 @@ public final class LookAndFeel {
 		if (laf == null) initLookAndFeel();
 	}
 
+	/**
+	 * Starts the AWT toolkit, the font subsystem and the configured look and
+	 * feel on a background daemon thread, so that later UI calls such as
+	 * {@link Splash#show} and {@link Dialogs#ask} find them already loaded.
+	 * Does nothing when running headless.
+	 */
+	static void warmup() {
+		if (Boolean.getBoolean("java.awt.headless")) return;
+		Thread thread = new Thread(() -> {
+			try {
+				Toolkit.getDefaultToolkit();
+				GraphicsEnvironment.getLocalGraphicsEnvironment();
+				initLookAndFeel();
+				// Measuring some text forces the font scaler to load.
+				Font font = UIManager.getFont("Label.font");
+				if (font == null) font = new Font(Font.DIALOG, Font.PLAIN, 12);
+				font.getStringBounds("Starting...", new FontRenderContext(null, true, true));
+			}
+			catch (Throwable t) {
+				Log.debug(t);
+			}
+		}, "LookAndFeel-Warmup");
+		// Don't let this thread prevent shutdown of the JVM.
+		thread.setDaemon(true);
+		thread.start();
+	}
+
 	private static synchronized void initLookAndFeel() {
 		if (laf != null) return;
 		String lafClassName = System.getProperty("scijava.app.look-and-feel");
@@ -0,0 +1,420 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads content available from several mirrors, from whichever is
+ * fastest.
+ * <p>
+ * All mirrors are first probed concurrently, by timing a small range request
+ * against each, and the download proceeds from the fastest responder. If the
+ * throughput then collapses to a small fraction of its peak, or the
+ * connection stalls, the download switches to the next fastest mirror,
+ * continuing where it left off via a range request if the mirror supports
+ * it, or starting over otherwise.
+ * </p>
+ * <p>
+ * Alternatively, a single byte range of the content may be downloaded, from
+ * mirrors supporting range requests; those are tried in the given order,
+ * without probing, so that the caller can rank them once for many ranges.
+ * </p>
+ */
+final class MirrorDownloader {
+
+	/** Number of bytes fetched from each mirror when probing. */
+	static final int PROBE_BYTES = 64 * 1024;
+
+	/** Maximum time to wait for the probes, and for connections generally. */
+	static final int TIMEOUT_MILLIS = 5000;
+
+	/** Maximum time without any data before giving up on a mirror. */
+	static final int STALL_MILLIS = 10000;
+
+	/** Length of the windows over which throughput is measured. */
+	static final long WINDOW_MILLIS = 500;
+
+	/** Fraction of peak throughput below which throughput has collapsed. */
+	static final double COLLAPSE_RATIO = 0.1;
+
+	/** Consecutive collapsed windows before switching mirrors. */
+	static final int COLLAPSE_WINDOWS = 3;
+
+	/** HTTP status code for a range beyond the end of the content. */
+	private static final int RANGE_NOT_SATISFIABLE = 416;
+
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (?:\\d+-\\d+|\\*)/(\\d+)");
+
+	private final List<URL> mirrors;
+	private final File dest;
+	private final Consumer<DownloadProgress> progressConsumer;
+	private final RateLimiter limiter;
+	private final DownloadProgress.Meter meter = new DownloadProgress.Meter();
+	private final boolean resume;
+	private final long offset;
+	private final long length;
+
+	private volatile URLConnection connection;
+	private long done;
+	private long total = -1;
+
+	MirrorDownloader(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer, RateLimiter limiter)
+	{
+		this(mirrors, dest, progressConsumer, limiter, false);
+	}
+
+	/**
+	 * @param resume Whether to continue from the content already in the
+	 *          destination file, e.g. from an earlier interrupted download,
+	 *          rather than starting over.
+	 */
+	MirrorDownloader(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer, RateLimiter limiter,
+		boolean resume)
+	{
+		this(mirrors, dest, progressConsumer, limiter, resume, 0, -1);
+	}
+
+	/**
+	 * Creates a downloader of the given byte range of the content, into the
+	 * destination file, starting over there.
+	 *
+	 * @param offset Position of the first byte to download.
+	 * @param length Number of bytes to download.
+	 */
+	MirrorDownloader(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer, RateLimiter limiter,
+		long offset, long length)
+	{
+		this(mirrors, dest, progressConsumer, limiter, false, offset, length);
+	}
+
+	private MirrorDownloader(List<URL> mirrors, File dest,
+		Consumer<DownloadProgress> progressConsumer, RateLimiter limiter,
+		boolean resume, long offset, long length)
+	{
+		this.resume = resume;
+		this.mirrors = mirrors;
+		this.dest = dest;
+		this.progressConsumer = progressConsumer;
+		this.limiter = limiter;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/** Performs the download, from the fastest mirrors first. */
+	void download() throws IOException, InterruptedException {
+		// Unblock any pending read if the download gets cancelled.
+		TaskExecutor.onCancel(() -> {
+			URLConnection conn = connection;
+			if (conn instanceof HttpURLConnection) ((HttpURLConnection) conn).disconnect();
+		});
+		List<URL> order = mirrors.size() > 1 && !isRange() ? rank(mirrors) : mirrors;
+		IOException failure = null;
+		try (RandomAccessFile out = new RandomAccessFile(dest, "rw")) {
+			if (resume) done = out.length();
+			else out.setLength(0);
+			for (int i = 0; i < order.size(); i++) {
+				URL url = order.get(i);
+				boolean last = i == order.size() - 1;
+				try {
+					if (download(url, out, last)) return;
+					Log.debug("Throughput from " + url + " collapsed; switching mirrors");
+				}
+				catch (InterruptedIOException exc) {
+					if (Thread.currentThread().isInterrupted()) throw exc;
+					Log.debug("Download from " + url + " stalled: " + exc);
+					failure = exc;
+				}
+				catch (IOException exc) {
+					if (Thread.currentThread().isInterrupted()) throw exc;
+					Log.debug("Download from " + url + " failed: " + exc);
+					failure = exc;
+				}
+			}
+		}
+		throw failure != null ? failure : new IOException("No mirror available");
+	}
+
+	/**
+	 * Ranks the given mirrors by their throughput for a small request, fastest
+	 * first, followed by those that did not respond in time.
+	 */
+	static List<URL> rank(List<URL> mirrors) throws InterruptedException {
+		// NB: Not the shared I/O executor, since the download task waits on these.
+		ExecutorService executor = Executors.newFixedThreadPool(mirrors.size(), r -> {
+			Thread t = new Thread(r, "Mirror-Probe");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<Double>> probes = new ArrayList<>();
+			for (URL mirror : mirrors) probes.add(executor.submit(() -> probe(mirror)));
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			double[] rates = new double[mirrors.size()];
+			for (int i = 0; i < rates.length; i++) {
+				try {
+					long wait = Math.max(0, deadline - System.currentTimeMillis());
+					rates[i] = probes.get(i).get(wait, TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException exc) {
+					throw exc;
+				}
+				catch (Exception exc) {
+					rates[i] = -1;
+				}
+				Log.debug("Mirror " + mirrors.get(i) + ": " + (long) rates[i] + " bytes/s");
+			}
+			List<Integer> indices = new ArrayList<>();
+			for (int i = 0; i < rates.length; i++) indices.add(i);
+			indices.sort(Comparator.comparingDouble(i -> -rates[i]));
+			List<URL> ranked = new ArrayList<>();
+			for (int i : indices) ranked.add(mirrors.get(i));
+			return ranked;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Measures the throughput of a small request, in bytes per second. */
+	static double probe(URL mirror) throws IOException {
+		long start = System.nanoTime();
+		URLConnection conn = connect(mirror, 0, PROBE_BYTES);
+		long n = 0;
+		try (InputStream in = conn.getInputStream()) {
+			byte[] buf = new byte[16 * 1024];
+			int r;
+			while (n < PROBE_BYTES && (r = in.read(buf)) > 0) n += r;
+		}
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		return n * 1e9 / elapsed;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Downloads from the given mirror, continuing from the current position.
+	 *
+	 * @param last Whether this is the last mirror, which is kept regardless.
+	 * @return {@code true} if the download completed, or {@code false} if
+	 *          throughput collapsed, and another mirror should take over.
+	 */
+	private boolean download(URL url, RandomAccessFile out, boolean last)
+		throws IOException, InterruptedException
+	{
+		if (isRange()) return downloadRange(url, out, last);
+		URLConnection conn = connect(url, done, -1);
+		connection = conn;
+		meter.connected();
+		if (isUnsatisfiable(conn)) {
+			// Resuming at or past the end: the content is complete, or stale.
+			long length = contentLength(conn, done);
+			((HttpURLConnection) conn).disconnect();
+			if (length == done) {
+				meter.total(total = done);
+				DownloadProgress progress = meter.update(done);
+				if (progressConsumer != null) progressConsumer.accept(progress);
+				return true;
+			}
+			done = 0;
+			out.setLength(0);
+			return download(url, out, last);
+		}
+		meter.source(url, conn);
+		long length = contentLength(conn, done);
+		if (done > 0 && !isPartial(conn)) {
+			// This mirror cannot resume; start over.
+			done = 0;
+			out.setLength(0);
+			length = contentLength(conn, 0);
+		}
+		if (total < 0) meter.total(total = length);
+		else if (length >= 0 && length != total) {
+			throw new IOException("Mirror content differs in size: " + url);
+		}
+		out.seek(done);
+
+		boolean completed = false;
+		try {
+			completed = copy(conn, out, last);
+			return completed;
+		}
+		finally {
+			// Don't let an abandoned connection linger until the server is done.
+			if (!completed && conn instanceof HttpURLConnection) {
+				((HttpURLConnection) conn).disconnect();
+			}
+		}
+	}
+
+	/**
+	 * Downloads the rest of the byte range from the given mirror, continuing
+	 * from the current position.
+	 */
+	private boolean downloadRange(URL url, RandomAccessFile out, boolean last)
+		throws IOException, InterruptedException
+	{
+		URLConnection conn = connect(url, offset + done, length - done);
+		connection = conn;
+		meter.connected();
+		if (!isPartial(conn)) {
+			if (conn instanceof HttpURLConnection) ((HttpURLConnection) conn).disconnect();
+			throw new IOException("Server does not support range requests: " + url);
+		}
+		meter.source(url, conn);
+		if (total < 0) meter.total(total = length);
+		out.seek(done);
+
+		boolean completed = false;
+		try {
+			completed = copy(conn, out, last);
+			return completed;
+		}
+		finally {
+			if (!completed && conn instanceof HttpURLConnection) {
+				((HttpURLConnection) conn).disconnect();
+			}
+		}
+	}
+
+	private boolean isRange() {
+		return length >= 0;
+	}
+
+	private boolean copy(URLConnection conn, RandomAccessFile out, boolean last)
+		throws IOException, InterruptedException
+	{
+		byte[] buf = new byte[64 * 1024];
+		double peak = 0;
+		int collapsed = 0;
+		long windowStart = System.nanoTime();
+		long windowBytes = 0;
+		try (InputStream in = limiter.throttle(conn.getInputStream())) {
+			int r;
+			while ((r = in.read(buf)) > 0) {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedException("Download thread interrupted");
+				}
+				out.write(buf, 0, r);
+				done += r;
+				windowBytes += r;
+				DownloadProgress progress = meter.update(done);
+				if (progressConsumer != null) progressConsumer.accept(progress);
+
+				long now = System.nanoTime();
+				long elapsed = now - windowStart;
+				if (elapsed < WINDOW_MILLIS * 1_000_000) continue;
+				double rate = windowBytes * 1e9 / elapsed;
+				peak = Math.max(peak, rate);
+				// NB: Throttling is not a collapse, even if tightened midway.
+				long limit = limiter.rate();
+				if (limit > 0) peak = Math.min(peak, limit);
+				collapsed = rate < peak * COLLAPSE_RATIO ? collapsed + 1 : 0;
+				if (collapsed >= COLLAPSE_WINDOWS && !last) return false;
+				windowStart = now;
+				windowBytes = 0;
+			}
+		}
+		if (total >= 0 && done != total) {
+			throw new IOException("Download from " + conn.getURL() + " ended early: " + done + "/" + total);
+		}
+		return true;
+	}
+
+	/**
+	 * Opens a connection to the given URL, requesting the given byte range
+	 * if nonzero.
+	 *
+	 * @param length Number of bytes to request, or -1 for all the rest.
+	 */
+	private static URLConnection connect(URL url, long offset, long length)
+		throws IOException
+	{
+		URLConnection conn = url.openConnection();
+		conn.setConnectTimeout(TIMEOUT_MILLIS);
+		conn.setReadTimeout(STALL_MILLIS);
+		if (conn instanceof HttpURLConnection) {
+			((HttpURLConnection) conn).setInstanceFollowRedirects(true);
+			if (offset > 0 || length >= 0) {
+				String end = length < 0 ? "" : String.valueOf(offset + length - 1);
+				conn.setRequestProperty("Range", "bytes=" + offset + "-" + end);
+			}
+			int code = ((HttpURLConnection) conn).getResponseCode();
+			boolean resumedPastEnd = code == RANGE_NOT_SATISFIABLE && offset > 0;
+			if (code >= 400 && !resumedPastEnd) {
+				throw new IOException("HTTP " + code + " from " + url);
+			}
+		}
+		return conn;
+	}
+
+	private static boolean isUnsatisfiable(URLConnection conn) throws IOException {
+		return conn instanceof HttpURLConnection &&
+			((HttpURLConnection) conn).getResponseCode() == RANGE_NOT_SATISFIABLE;
+	}
+
+	private static boolean isPartial(URLConnection conn) throws IOException {
+		return conn instanceof HttpURLConnection &&
+			((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+	}
+
+	/** Gets the full length of the content, or -1 if unknown. */
+	private static long contentLength(URLConnection conn, long offset) throws IOException {
+		if (isPartial(conn) || isUnsatisfiable(conn)) {
+			String range = conn.getHeaderField("Content-Range");
+			Matcher m = range == null ? null : CONTENT_RANGE.matcher(range);
+			if (m != null && m.matches()) return Long.parseLong(m.group(1));
+			if (isUnsatisfiable(conn)) return -1;
+			long length = conn.getContentLengthLong();
+			return length < 0 ? -1 : offset + length;
+		}
+		return conn.getContentLengthLong();
+	}
+}
@@ -0,0 +1,247 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Determines the Java version required by an application before any of its
+ * classes are loaded, by reading class file major versions directly.
+ * <p>
+ * Without this, an insufficient Java version would only surface as an
+ * {@link UnsupportedClassVersionError} once the main class is loaded, at
+ * which point the required version must be scraped from the error message.
+ * </p>
+ */
+final class Preflight {
+
+	private Preflight() { }
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	/** Maximum number of JAR files to scan in parallel. */
+	private static final int MAX_SCAN_THREADS = 4;
+
+	/** Gets the class file major version supported by the running JVM. */
+	static int runningClassVersion() {
+		String v = System.getProperty("java.class.version", "");
+		int dot = v.indexOf('.');
+		try {
+			return Integer.parseInt(dot < 0 ? v : v.substring(0, dot));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the class file major version of the given class, without loading it.
+	 *
+	 * @return The major version, or -1 if the class file could not be read.
+	 */
+	static int classVersion(String className) {
+		String path = className.replace('.', '/') + ".class";
+		URL url = ClassLoaders.loaders(Preflight.class)
+			.map(classLoader -> classLoader.getResource(path))
+			.filter(Objects::nonNull)
+			.findFirst().orElse(null);
+		if (url == null) return -1;
+		try (InputStream in = url.openStream()) {
+			return classVersion(in);
+		}
+		catch (IOException e) {
+			Log.debug(e);
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the highest class file major version across all the given JAR files,
+	 * scanning several JAR files in parallel.
+	 *
+	 * @return The highest major version, or -1 if none could be read.
+	 */
+	static int jarsVersion(List<File> jars) {
+		if (jars.isEmpty()) return -1;
+		int threads = Math.min(jars.size(), MAX_SCAN_THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "Preflight-Scanner");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Callable<Integer>> scans = new ArrayList<>();
+			for (File jar : jars) scans.add(() -> jarVersion(jar));
+			int version = -1;
+			for (Future<Integer> f : executor.invokeAll(scans)) {
+				version = Math.max(version, f.get());
+			}
+			return version;
+		}
+		catch (InterruptedException | ExecutionException e) {
+			Log.debug(e);
+			return -1;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Gets the highest class file major version within the given JAR file.
+	 * <p>
+	 * Only the first eight bytes of each class are decompressed. Classes that
+	 * are not loaded on older JVMs anyway are skipped: {@code module-info}
+	 * descriptors, and multi-release overrides under
+	 * {@code META-INF/versions/}.
+	 * </p>
+	 */
+	static int jarVersion(File jar) {
+		int version = -1;
+		try (ZipFile zip = new ZipFile(jar)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (!name.endsWith(".class") || name.startsWith("META-INF/") ||
+					name.endsWith("module-info.class")) continue;
+				try (InputStream in = zip.getInputStream(entry)) {
+					version = Math.max(version, classVersion(in));
+				}
+			}
+		}
+		catch (IOException e) {
+			Log.debug(e);
+		}
+		return version;
+	}
+
+	/**
+	 * Gets the JAR files of the class path the application is launched with:
+	 * those of the system class path, those of the class loaders from which
+	 * {@link ClassLauncher} loads the main class, and those referenced by
+	 * their manifests' {@code Class-Path} attributes, e.g. when launched via
+	 * {@code java -jar}.
+	 */
+	static List<File> classPathJars() {
+		return classPathJars(System.getProperty("java.class.path", ""),
+			ClassLoaders.loaders(ClassLauncher.class).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Gets the JAR files of the given class path and class loaders, as
+	 * {@link #classPathJars()} does.
+	 */
+	static List<File> classPathJars(String classPath,
+		Collection<ClassLoader> classLoaders)
+	{
+		Set<File> jars = new LinkedHashSet<>();
+		for (String element : classPath.split(File.pathSeparator)) {
+			if (!element.isEmpty()) addJar(jars, new File(element));
+		}
+		for (ClassLoader classLoader : classLoaders) {
+			if (!(classLoader instanceof URLClassLoader)) continue;
+			for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+				if (!"file".equals(url.getProtocol())) continue;
+				try {
+					addJar(jars, new File(url.toURI()));
+				}
+				catch (URISyntaxException | IllegalArgumentException exc) {
+					Log.debug(exc);
+				}
+			}
+		}
+		return new ArrayList<>(jars);
+	}
+
+	/**
+	 * Adds the given JAR file, unless already there, together with the JAR
+	 * files its manifest references.
+	 */
+	private static void addJar(Set<File> jars, File file) {
+		if (!file.getName().endsWith(".jar") || !file.isFile()) return;
+		File jar = file.toPath().toAbsolutePath().normalize().toFile();
+		if (!jars.add(jar)) return;
+		String references;
+		try (JarFile jarFile = new JarFile(jar)) {
+			Manifest manifest = jarFile.getManifest();
+			if (manifest == null) return;
+			references = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+			return;
+		}
+		if (references == null) return;
+		// NB: Class-Path entries are URLs relative to the referencing JAR file.
+		for (String reference : references.trim().split("\\s+")) {
+			if (reference.isEmpty()) continue;
+			try {
+				URI uri = jar.toURI().resolve(reference);
+				if ("file".equals(uri.getScheme())) addJar(jars, new File(uri));
+			}
+			catch (IllegalArgumentException exc) {
+				Log.debug(exc);
+			}
+		}
+	}
+
+	private static int classVersion(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) return -1;
+		data.readUnsignedShort(); // minor version
+		return data.readUnsignedShort();
+	}
+}
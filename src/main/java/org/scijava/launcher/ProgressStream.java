@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Rate-limited progress reporting for headless operation.
+ * <p>
+ * Progress is reported in phases (e.g. {@code download}, {@code unpack}).
+ * Within a phase, at most one event is emitted per configured interval, while
+ * phase changes and status messages are always emitted immediately. This keeps
+ * the output small even when thousands of updates arrive per second, such as
+ * one per extracted file while unpacking a JDK.
+ * </p>
+ * <p>
+ * Two output formats are supported: human-readable text lines, and JSON lines
+ * for consumption by orchestration tools. Each JSON event is a single line of
+ * the form:
+ * </p>
+ * <pre>
+ * {"phase":"download","done":1048576,"total":209715200,"rate":5242880.0,"eta":39.8}
+ * </pre>
+ * <p>
+ * where {@code done} and {@code total} count bytes for downloads and entries
+ * for unpacking, {@code rate} is the smoothed throughput in units per second,
+ * and {@code eta} is the estimated number of seconds remaining. Unknown values
+ * are reported as {@code -1}. Status events carry a {@code message} instead.
+ * Download events additionally carry the number of {@code connections}
+ * opened thus far, which exceeds one when switching between mirrors.
+ * </p>
+ */
+class ProgressStream {
+
+	/** Weight of the newest throughput sample in the moving average. */
+	private static final double SMOOTHING = 0.3;
+
+	private final PrintStream out;
+	private final boolean json;
+	private final long intervalNanos;
+
+	private String phase;
+	private long done, total;
+	private long lastTime, lastDone;
+	private double rate;
+	private int connections;
+	private boolean pending;
+
+	/**
+	 * Creates a progress stream configured by the
+	 * {@code scijava.app.progress-format} ({@code text} or {@code json}) and
+	 * {@code scijava.app.progress-interval} (milliseconds) system properties.
+	 */
+	ProgressStream(PrintStream out) {
+		this(out,
+			"json".equalsIgnoreCase(System.getProperty("scijava.app.progress-format")),
+			Long.getLong("scijava.app.progress-interval", 1000));
+	}
+
+	ProgressStream(PrintStream out, boolean json, long intervalMillis) {
+		this.out = out;
+		this.json = json;
+		this.intervalNanos = intervalMillis * 1_000_000;
+	}
+
+	/** Emits a status message, ending the current phase. */
+	synchronized void status(String message) {
+		flush();
+		phase = null;
+		if (json) out.println("{\"message\":" + quote(message) + "}");
+		else out.println(message);
+	}
+
+	/**
+	 * Records progress within the given phase.
+	 *
+	 * @param phase Name of the phase, e.g. {@code download}.
+	 * @param done Units (bytes, entries) completed thus far.
+	 * @param total Total units, or -1 if unknown.
+	 */
+	synchronized void progress(String phase, long done, long total) {
+		progress(phase, done, total, -1, 0);
+	}
+
+	/**
+	 * Records download progress within the given phase, using the download's
+	 * own throughput measurement.
+	 *
+	 * @param phase Name of the phase, e.g. {@code download}.
+	 * @param download The latest snapshot of the download's progress.
+	 */
+	synchronized void progress(String phase, DownloadProgress download) {
+		progress(phase, download.bytes(), download.total(),
+			download.smoothedRate(), download.connections());
+	}
+
+	/**
+	 * @param measuredRate Throughput measured by the caller, or -1 to measure
+	 *                      it here.
+	 * @param connections Number of connections, or 0 if not applicable.
+	 */
+	private void progress(String phase, long done, long total,
+		double measuredRate, int connections)
+	{
+		long now = System.nanoTime();
+		this.connections = connections;
+		if (!phase.equals(this.phase)) {
+			flush();
+			this.phase = phase;
+			this.done = done;
+			this.total = total;
+			lastTime = now;
+			lastDone = 0;
+			rate = Math.max(0, measuredRate);
+			emit();
+			return;
+		}
+		this.done = done;
+		this.total = total;
+		pending = true;
+		if (now - lastTime < intervalNanos) return;
+		if (measuredRate >= 0) rate = measuredRate;
+		else {
+			double sample = (done - lastDone) / ((now - lastTime) / 1e9);
+			rate = rate == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * rate;
+		}
+		lastTime = now;
+		lastDone = done;
+		emit();
+	}
+
+	/** Emits the latest progress, if not already reported. */
+	synchronized void flush() {
+		if (pending) emit();
+	}
+
+	private void emit() {
+		pending = false;
+		double eta = total > 0 && rate > 0 ? (total - done) / rate : -1;
+		if (json) {
+			String event = String.format(Locale.ROOT,
+				"{\"phase\":%s,\"done\":%d,\"total\":%d,\"rate\":%.1f,\"eta\":%.1f",
+				quote(phase), done, total, rate, eta);
+			if (connections > 0) event += ",\"connections\":" + connections;
+			out.println(event + "}");
+		}
+		else {
+			StringBuilder sb = new StringBuilder(phase).append(": ").append(done);
+			if (total > 0) sb.append("/").append(total)
+				.append(" [").append(100 * done / total).append("%]");
+			if (rate > 0) sb.append(String.format(Locale.ROOT, " %.0f/s", rate));
+			if (eta >= 0) sb.append(String.format(Locale.ROOT, ", %.0fs left", eta));
+			if (connections > 1) sb.append(", ").append(connections).append(" connections");
+			out.println(sb);
+		}
+	}
+
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+					else sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
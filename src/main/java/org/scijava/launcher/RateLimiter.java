@@ -0,0 +1,197 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Token bucket limiting the bandwidth of downloads.
+ * <p>
+ * There are two shared limiters: one for {@link #foreground()} downloads,
+ * which the user waits for, and one for {@link #background()} downloads,
+ * such as staged Java upgrades. All downloads of a kind draw from the same
+ * bucket, so their combined bandwidth stays within the limit. The initial
+ * limits come from the {@code scijava.app.download-rate} and
+ * {@code scijava.app.background-download-rate} system properties, in KB per
+ * second; either may be adjusted at runtime via {@link #setRate(long)},
+ * taking effect immediately, including for downloads already underway.
+ * </p>
+ */
+public final class RateLimiter {
+
+	/** Duration of the bursts that the bucket allows. */
+	private static final double BURST_SECONDS = 0.25;
+
+	/** Maximum number of bytes read at once from a throttled stream. */
+	private static final int MAX_READ = 16 * 1024;
+
+	private static final RateLimiter FOREGROUND =
+		new RateLimiter(kbPerSecond("scijava.app.download-rate"));
+	private static final RateLimiter BACKGROUND =
+		new RateLimiter(kbPerSecond("scijava.app.background-download-rate"));
+
+	private static final ThreadLocal<RateLimiter> CURRENT = new ThreadLocal<>();
+
+	private long rate;
+	private double tokens;
+	private long lastRefill = System.nanoTime();
+
+	/**
+	 * Creates a rate limiter.
+	 *
+	 * @param bytesPerSecond The maximum rate, or 0 for no limit.
+	 */
+	RateLimiter(long bytesPerSecond) {
+		setRate(bytesPerSecond);
+	}
+
+	/** Gets the limiter for downloads the user is waiting for. */
+	public static RateLimiter foreground() {
+		return FOREGROUND;
+	}
+
+	/** Gets the limiter for downloads happening in the background. */
+	public static RateLimiter background() {
+		return BACKGROUND;
+	}
+
+	/**
+	 * Gets the limiter for downloads started by the current thread: the one
+	 * set via {@link #use(RateLimiter)}, or else {@link #foreground()}.
+	 */
+	static RateLimiter current() {
+		RateLimiter limiter = CURRENT.get();
+		return limiter == null ? FOREGROUND : limiter;
+	}
+
+	/**
+	 * Sets the limiter for downloads started by the current thread.
+	 *
+	 * @param limiter The limiter, or {@code null} for {@link #foreground()}.
+	 */
+	static void use(RateLimiter limiter) {
+		if (limiter == null) CURRENT.remove();
+		else CURRENT.set(limiter);
+	}
+
+	/** Gets the maximum rate in bytes per second, or 0 if unlimited. */
+	public synchronized long rate() {
+		return rate;
+	}
+
+	/**
+	 * Sets the maximum rate, effective immediately.
+	 *
+	 * @param bytesPerSecond The maximum rate, or 0 for no limit.
+	 */
+	public synchronized void setRate(long bytesPerSecond) {
+		refill(System.nanoTime());
+		rate = Math.max(0, bytesPerSecond);
+		tokens = Math.min(tokens, capacity());
+		// Wake up any waiting readers, to recompute their wait.
+		notifyAll();
+	}
+
+	/**
+	 * Takes the given number of bytes from the bucket, waiting as long as the
+	 * bucket is in debt. A request exceeding the bucket's content is granted
+	 * anyway, putting the bucket in debt, so that reads of any size work.
+	 */
+	synchronized void acquire(long bytes) throws InterruptedException {
+		while (true) {
+			if (rate == 0) return;
+			refill(System.nanoTime());
+			if (tokens >= 0) {
+				tokens -= bytes;
+				return;
+			}
+			// NB: wait rather than sleep, so that setRate is not held up.
+			long waitMillis = (long) Math.ceil(-tokens * 1000 / rate);
+			wait(Math.max(1, waitMillis));
+		}
+	}
+
+	/** Wraps the given stream, so that reading from it draws from this bucket. */
+	InputStream throttle(InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) take(1);
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, rate() == 0 ? len : Math.min(len, MAX_READ));
+				if (n > 0) take(n);
+				return n;
+			}
+
+			private void take(int bytes) throws InterruptedIOException {
+				try {
+					acquire(bytes);
+				}
+				catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Download thread interrupted");
+				}
+			}
+		};
+	}
+
+	// -- Helper methods --
+
+	private double capacity() {
+		return Math.max(MAX_READ, rate * BURST_SECONDS);
+	}
+
+	private void refill(long now) {
+		if (rate > 0) tokens = Math.min(capacity(), tokens + (now - lastRefill) * rate / 1e9);
+		lastRefill = now;
+	}
+
+	private static long kbPerSecond(String property) {
+		String value = System.getProperty(property);
+		long kb = 0;
+		if (value != null) {
+			try {
+				kb = Long.parseLong(value.trim());
+			}
+			catch (NumberFormatException exc) {
+				Log.debug(exc);
+			}
+		}
+		return kb * 1024;
+	}
+}
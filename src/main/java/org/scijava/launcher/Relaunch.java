@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restarts the application with a different Java installation, e.g. right
+ * after a Java upgrade, so that the user need not do it by hand.
+ * <p>
+ * The new process runs {@link ClassLauncher} with the same arguments, JVM
+ * options, system properties, class path and working directory as this one,
+ * and inherits its standard streams. This process then waits for it to
+ * finish, and exits with its exit code.
+ * </p>
+ */
+final class Relaunch {
+
+	/** System property marking a process as already relaunched. */
+	static final String RELAUNCHED = "scijava.app.relaunched";
+
+	/** JVM options describing this process, rather than the application. */
+	private static final List<String> OMITTED_OPTIONS = Arrays.asList(
+		"-Djava.class.path=", "-Djava.home=", "-Dsun.java.command=",
+		"-Dsun.java.launcher", "-D" + RELAUNCHED + "=");
+
+	private Relaunch() { }
+
+	/**
+	 * Gets whether relaunching is enabled, via the {@code scijava.app.relaunch}
+	 * system property. A relaunched process never relaunches again.
+	 */
+	static boolean isEnabled() {
+		return Boolean.getBoolean("scijava.app.relaunch") &&
+			!Boolean.getBoolean(RELAUNCHED);
+	}
+
+	/**
+	 * Restarts the application using the Java installation at the given folder.
+	 * Only returns if the new process could not be started.
+	 */
+	static void exec(Path javaHome, String[] args) throws IOException {
+		Path java = executable(javaHome);
+		if (java == null) throw new IOException("No java executable in " + javaHome);
+		List<String> command = command(java,
+			ManagementFactory.getRuntimeMXBean().getInputArguments(),
+			System.getProperties(), args);
+		Log.debug("Relaunching: " + command);
+		Process p = new ProcessBuilder(command)
+			.directory(new File(System.getProperty("user.dir")))
+			.inheritIO()
+			.start();
+		int exitCode;
+		try {
+			exitCode = p.waitFor();
+		}
+		catch (InterruptedException exc) {
+			p.destroy();
+			exitCode = 1;
+		}
+		System.exit(exitCode);
+	}
+
+	/**
+	 * Builds the command line for relaunching with the given {@code java}
+	 * executable.
+	 *
+	 * @param java The {@code java} executable to use.
+	 * @param jvmOptions The JVM options of this process.
+	 * @param properties The system properties of this process; those of the
+	 *          {@code scijava.} namespace are passed on, in case they were
+	 *          set after startup.
+	 * @param args The arguments to pass to {@link ClassLauncher}.
+	 */
+	static List<String> command(Path java, List<String> jvmOptions,
+		Map<Object, Object> properties, String[] args)
+	{
+		List<String> command = new ArrayList<>();
+		command.add(java.toString());
+		// The new Java may reject options of the old one, e.g. removed -XX flags.
+		command.add("-XX:+IgnoreUnrecognizedVMOptions");
+		for (String option : jvmOptions) {
+			if (OMITTED_OPTIONS.stream().noneMatch(option::startsWith)) command.add(option);
+		}
+		for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+			String key = String.valueOf(entry.getKey());
+			if (!key.startsWith("scijava.") || key.equals(RELAUNCHED)) continue;
+			command.add("-D" + key + "=" + entry.getValue());
+		}
+		command.add("-D" + RELAUNCHED + "=true");
+		String classPath = (String) properties.get("java.class.path");
+		if (classPath != null && !classPath.isEmpty()) {
+			command.add("-cp");
+			command.add(classPath);
+		}
+		command.add(ClassLauncher.class.getName());
+		command.addAll(Arrays.asList(args));
+		return command;
+	}
+
+	/**
+	 * Gets the {@code java} executable of the Java installation at the given
+	 * folder, or {@code null} if there is none.
+	 */
+	static Path executable(Path javaHome) {
+		for (Path home : new Path[] {javaHome, javaHome.resolve("Contents").resolve("Home")}) {
+			for (String exe : new String[] {"java", "java.exe"}) {
+				Path java = home.resolve("bin").resolve(exe);
+				if (Files.isRegularFile(java)) return java;
+			}
+		}
+		return null;
+	}
+}
@@ -29,19 +29,38 @@
 
 package org.scijava.launcher;
 
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
+import javax.imageio.ImageIO;
+import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JWindow;
+import java.awt.AWTEvent;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.EventQueue;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
 import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.net.URL;
 
 /**
  * Application splash window.
+ * <p>
+ * The splash window is constructed off the critical path: {@link #show} returns
+ * immediately, while a background thread initializes the look and feel and
+ * decodes the logo image, after which the window is assembled and shown on the
+ * AWT event dispatch thread. Calls to {@link #update} made in the meantime are
+ * remembered and applied once the window appears.
+ * </p>
  *
  * @author Curtis Rueden
  * @author Stefan Helfrich
@@ -52,6 +71,19 @@ public class Splash {
 
 	private static Object splashWindow;
 	private static Object progressBar;
+	private static Object cancelButton;
+	private static Object autocloser;
+
+	/** Decoded logo, pre-scaled for the screen, keyed by {@link #logoKey}. */
+	private static Object logo;
+	private static String logoKey;
+
+	/** Incremented each time the splash is shown or hidden. */
+	private static int generation;
+
+	private static volatile String pendingMessage;
+	private static volatile double pendingProgress = Double.NaN;
+	private static volatile Runnable cancelAction;
 
 	/**
 	 * Displays a splash window. If the {@code scijava.app.splash-image} property
@@ -65,8 +97,8 @@ public class Splash {
 	 * Displays a splash window. If the {@code scijava.app.splash-image} property
 	 * references a path to a valid image, it will be loaded and used as the splash logo.
 	 *
-	 * @param autoclose If true, creates a dedicated daemon thread to close the splash
-	 *                   screen automatically as soon as any other windows become visible.
+	 * @param autoclose If true, closes the splash screen automatically
+	 *                   as soon as any other window becomes visible.
 	 */
 	public static void show(boolean autoclose) {
 		show(null, autoclose);
@@ -83,51 +115,31 @@ public class Splash {
 
 	/**
 	 * Displays a splash window with the given logo image.
+	 * <p>
+	 * This method does not block: the look and feel initialization, logo
+	 * decoding and window construction all happen in the background.
+	 * </p>
 	 *
 	 * @param logoPath Resource path to the logo image to display.
-	 * @param autoclose If true, creates a dedicated daemon thread to close the splash
-	 *                   screen automatically as soon as any other windows become visible.
+	 * @param autoclose If true, closes the splash screen automatically
+	 *                   as soon as any other window becomes visible.
 	 */
 	public static void show(String logoPath, boolean autoclose) {
 		if (Boolean.getBoolean("java.awt.headless")) return;
-		LookAndFeel.init();
-
-		if (logoPath == null) logoPath = System.getProperty("scijava.app.splash-image");
-
-		final JWindow window = new JWindow();
-		splashWindow = window; // Save a non-AWT reference to the window.
-		final JLabel logoImage;
-		if (logoPath == null) logoImage = null;
-		else {
-			final URL logoURL = ClassLoaders.loadResource(Splash.class, logoPath);
-			final ImageIcon imageIcon = new ImageIcon(logoURL);
-			logoImage = new JLabel(imageIcon);
+		final String path = logoPath == null ?
+			System.getProperty("scijava.app.splash-image") : logoPath;
+		final int gen;
+		synchronized (Splash.class) {
+			gen = ++generation;
 		}
-		final JProgressBar bar = new JProgressBar();
-		bar.setMaximum(PROGRESS_MAX);
-		progressBar = bar; // Save a non-AWT reference to the progress bar.
-		bar.setStringPainted(true);
-		String appName = System.getProperty("scijava.app.name");
-		if (appName == null) appName = "application";
-		bar.setString("Starting " + appName + "...");
-
-		// lay out components
-		final JPanel pane = new JPanel();
-		pane.setOpaque(false);
-		pane.setLayout(new BorderLayout());
-		if (logoImage != null) pane.add(logoImage, BorderLayout.CENTER);
-		pane.add(bar, BorderLayout.SOUTH);
-		window.setContentPane(pane);
-		window.pack();
-
-		window.setAlwaysOnTop(true);
-		window.setLocationRelativeTo(null);
-		window.setBackground(new Color(0, 0, 0, 0));
-
-		window.setVisible(true);
-
-		// Kill the splash window when any other window shows up.
-		if (autoclose) startSplashAutocloseThread();
+		Thread thread = new Thread(() -> {
+			LookAndFeel.init();
+			final ScaledImage image = path == null ? null : loadLogo(path);
+			EventQueue.invokeLater(() -> createWindow(gen, image, autoclose));
+		}, "Splash-Init");
+		// Don't let this thread prevent shutdown of the JVM.
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	/**
@@ -155,6 +167,9 @@ public class Splash {
 	 * @param progress The progress value, in the range [0.0, 1.0].
 	 */
 	public static void update(final String message, final double progress) {
+		// Remember the latest state, in case the window is not yet built.
+		if (message != null) pendingMessage = message;
+		if (!Double.isNaN(progress)) pendingProgress = progress;
 		Runnable updater = () -> {
 			JProgressBar jpBar = (JProgressBar) progressBar;
 			if (jpBar == null) return;
@@ -167,38 +182,225 @@ public class Splash {
 		else EventQueue.invokeLater(updater);
 	}
 
+	/**
+	 * Shows a Cancel button beside the progress bar, which invokes the given
+	 * action when clicked, or removes the button if the action is {@code null}.
+	 *
+	 * @param action The action to perform when the user clicks Cancel.
+	 */
+	public static void setCancelAction(final Runnable action) {
+		cancelAction = action;
+		Runnable updater = () -> {
+			JButton button = (JButton) cancelButton;
+			if (button == null) return;
+			button.setEnabled(true);
+			button.setVisible(action != null);
+		};
+		if (EventQueue.isDispatchThread()) updater.run();
+		else EventQueue.invokeLater(updater);
+	}
+
 	/**
 	 * Removes the splash window from view and disposes of it.
 	 * Does nothing if no splash window is currently active.
 	 */
 	public static void hide() {
+		synchronized (Splash.class) {
+			// Cancel any splash window still under construction.
+			generation++;
+		}
+		pendingMessage = null;
+		pendingProgress = Double.NaN;
+		cancelAction = null;
+		stopSplashAutoclose();
+		if (EventQueue.isDispatchThread()) disposeWindow();
+		else EventQueue.invokeLater(Splash::disposeWindow);
+	}
+
+	private static void disposeWindow() {
 		if (splashWindow == null) return;
 		((Window) splashWindow).dispose();
 		splashWindow = null;
 		progressBar = null;
+		cancelButton = null;
 	}
 
-	private static void startSplashAutocloseThread() {
-		Thread thread = new Thread(() -> {
-			while (true) {
-				try {
-					Thread.sleep(100);
-				}
-				catch (final InterruptedException exc) {}
-				if (splashWindow == null) return;
-				final Window[] windows = Window.getWindows();
-				for (final Window win : windows) {
-					// Terminate the splash window as soon as another window is visible.
-					if (win.isVisible() && win != splashWindow) {
-						win.requestFocusInWindow();
-						hide();
-						return;
-					}
-				}
+	/** Builds and shows the splash window. Must be called on the EDT. */
+	private static void createWindow(int gen, ScaledImage image,
+		boolean autoclose)
+	{
+		synchronized (Splash.class) {
+			// Bail out if the splash was hidden (or reshown) in the meantime.
+			if (gen != generation) return;
+		}
+		disposeWindow();
+		if (autoclose) {
+			// The application may have beaten us to it; if so, stay out of its way.
+			for (final Window win : Window.getWindows()) {
+				if (win.isVisible()) return;
 			}
-		}, "Splash-Monitor");
-		// Don't let this thread prevent shutdown of the JVM.
-		thread.setDaemon(true);
-		thread.start();
+		}
+
+		final JWindow window = new JWindow();
+		splashWindow = window; // Save a non-AWT reference to the window.
+		final JProgressBar bar = new JProgressBar();
+		bar.setMaximum(PROGRESS_MAX);
+		progressBar = bar; // Save a non-AWT reference to the progress bar.
+		bar.setStringPainted(true);
+		String message = pendingMessage;
+		if (message == null) {
+			String appName = System.getProperty("scijava.app.name");
+			if (appName == null) appName = "application";
+			message = "Starting " + appName + "...";
+		}
+		bar.setString(message);
+		double progress = pendingProgress;
+		if (!Double.isNaN(progress)) bar.setValue((int) (progress * PROGRESS_MAX));
+
+		final JButton cancel = new JButton("Cancel");
+		cancelButton = cancel; // Save a non-AWT reference to the button.
+		cancel.setVisible(cancelAction != null);
+		cancel.addActionListener(e -> {
+			Runnable action = cancelAction;
+			if (action == null) return;
+			cancel.setEnabled(false);
+			bar.setString("Cancelling...");
+			action.run();
+		});
+		final JPanel status = new JPanel();
+		status.setOpaque(false);
+		status.setLayout(new BorderLayout());
+		status.add(bar, BorderLayout.CENTER);
+		status.add(cancel, BorderLayout.EAST);
+
+		// lay out components
+		final JPanel pane = new JPanel();
+		pane.setOpaque(false);
+		pane.setLayout(new BorderLayout());
+		if (image != null) pane.add(new Logo(image), BorderLayout.CENTER);
+		pane.add(status, BorderLayout.SOUTH);
+		window.setContentPane(pane);
+		window.pack();
+
+		window.setAlwaysOnTop(true);
+		window.setLocationRelativeTo(null);
+		window.setBackground(new Color(0, 0, 0, 0));
+
+		// Kill the splash window when any other window shows up.
+		// NB: Register before showing the splash, so no window opening is missed.
+		if (autoclose) startSplashAutoclose();
+
+		window.setVisible(true);
+	}
+
+	/**
+	 * Decodes the logo image at the given path, pre-scaled to the resolution of
+	 * the default screen. The result is cached, so that showing the splash again
+	 * (e.g. during a Java upgrade) does not decode the image a second time.
+	 */
+	private static synchronized ScaledImage loadLogo(String path) {
+		final double scale = screenScale();
+		final String key = path + "@" + scale;
+		if (key.equals(logoKey)) return (ScaledImage) logo;
+		BufferedImage image = null;
+		try {
+			final URL logoURL = ClassLoaders.loadResource(Splash.class, path);
+			image = ImageIO.read(logoURL);
+			if (image == null) Log.debug("Unsupported splash image: " + path);
+			else if (scale != 1) image = scaled(image, scale);
+		}
+		catch (IOException | IllegalArgumentException exc) {
+			Log.debug(exc);
+		}
+		final ScaledImage result = image == null ? null :
+			new ScaledImage(image, scale);
+		logo = result;
+		logoKey = key;
+		return result;
+	}
+
+	/** Creates a smoothly resampled copy of the image at the given scale. */
+	private static BufferedImage scaled(BufferedImage image, double scale) {
+		int w = (int) Math.round(image.getWidth() * scale);
+		int h = (int) Math.round(image.getHeight() * scale);
+		BufferedImage result = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = result.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+			RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		g.drawImage(image, 0, 0, w, h, null);
+		g.dispose();
+		return result;
+	}
+
+	/** Gets the HiDPI scale factor of the default screen. */
+	private static double screenScale() {
+		try {
+			return GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration()
+				.getDefaultTransform().getScaleX();
+		}
+		catch (RuntimeException exc) {
+			Log.debug(exc);
+			return 1;
+		}
+	}
+
+	private static synchronized void startSplashAutoclose() {
+		if (autocloser != null) return;
+		final AWTEventListener listener = event -> {
+			if (event.getID() != WindowEvent.WINDOW_OPENED) return;
+			final Window win = ((WindowEvent) event).getWindow();
+			// Terminate the splash window as soon as another window is visible.
+			if (splashWindow == null || win == splashWindow) return;
+			win.requestFocusInWindow();
+			hide();
+		};
+		autocloser = listener; // Save a non-AWT reference to the listener.
+		Toolkit.getDefaultToolkit().addAWTEventListener(listener,
+			AWTEvent.WINDOW_EVENT_MASK);
+	}
+
+	private static synchronized void stopSplashAutoclose() {
+		if (autocloser == null) return;
+		Toolkit.getDefaultToolkit().removeAWTEventListener(
+			(AWTEventListener) autocloser);
+		autocloser = null;
+	}
+
+	/** A decoded image together with the scale it was resampled at. */
+	private static class ScaledImage {
+
+		private final BufferedImage image;
+		private final double scale;
+
+		ScaledImage(BufferedImage image, double scale) {
+			this.image = image;
+			this.scale = scale;
+		}
+	}
+
+	/**
+	 * Component painting the logo image. The image is stored at device
+	 * resolution, but laid out at its logical (unscaled) size, so that on HiDPI
+	 * screens it is blitted 1:1 without any rescaling at paint time.
+	 */
+	private static class Logo extends JComponent {
+
+		private final BufferedImage image;
+		private final int width, height;
+
+		Logo(ScaledImage logo) {
+			image = logo.image;
+			width = (int) Math.round(image.getWidth() / logo.scale);
+			height = (int) Math.round(image.getHeight() / logo.scale);
+			setPreferredSize(new Dimension(width, height));
+			setOpaque(false);
+		}
+
+		@Override
+		protected void paintComponent(Graphics g) {
+			int x = (getWidth() - width) / 2, y = (getHeight() - height) / 2;
+			g.drawImage(image, x, y, width, height, null);
+		}
 	}
 }
@@ -0,0 +1,333 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Background Java upgrade, applied on the next launch.
+ * <p>
+ * Rather than blocking the user behind a splash screen, the recommended Java
+ * is downloaded and unpacked by a low-priority daemon thread into a staging
+ * folder within the java-root, while the application runs. Only once the
+ * staged installation has been verified is it moved into place and recorded
+ * as the new {@code jvm-dir}; if anything goes wrong, the configuration is
+ * left untouched, and the next launch simply tries again. The download is
+ * subject to the {@link RateLimiter#background() background} bandwidth limit,
+ * which is lifted to the foreground one should the user end up waiting for it.
+ * </p>
+ * <p>
+ * Interactive upgrades go through the same staging folder, so that a
+ * half-unpacked Java is never visible within the java-root. If unpacking is
+ * interrupted, the next attempt resumes in the same staging folder, skipping
+ * what was already unpacked (see {@link UnpackJournal}).
+ * </p>
+ */
+final class StagedUpgrade {
+
+	/** Prefix of the staging folders within the java-root. */
+	static final String STAGING_PREFIX = ".staging-";
+
+	/** Age beyond which leftover staging folders are considered abandoned. */
+	private static final long STALE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+	private static Thread stager;
+
+	private StagedUpgrade() { }
+
+	/** Starts staging the recommended Java, unless already in progress. */
+	static synchronized void start() {
+		if (stager != null && stager.isAlive()) return;
+		stager = new Thread(() -> {
+			RateLimiter.use(RateLimiter.background());
+			try {
+				stage();
+			}
+			catch (Throwable t) {
+				Log.debug("Staged Java upgrade failed");
+				Log.debug(t);
+			}
+			finally {
+				RateLimiter.use(null);
+			}
+		}, "Java-Stager");
+		stager.setPriority(Thread.MIN_PRIORITY);
+		// Don't let this thread prevent shutdown of the JVM.
+		stager.setDaemon(true);
+		stager.start();
+	}
+
+	/**
+	 * Downloads, unpacks and verifies the recommended Java, then points
+	 * {@code jvm-dir} at it.
+	 */
+	static void stage() throws IOException {
+		Path root = Java.root(true);
+		if (root == null || !Files.isDirectory(root)) {
+			throw new IOException("Invalid Java root directory");
+		}
+		Path installed = install(root, (message, progress) -> {}, null);
+		if (installed == null) {
+			throw new IOException("No Java download available for platform: " +
+				System.getProperty("scijava.app.java-platform"));
+		}
+		Java.updateJavaPath(installed);
+		Log.debug("Staged Java upgrade complete: " + installed);
+	}
+
+	/**
+	 * Installs the recommended Java into the given java-root, unless a suitable
+	 * one is already there.
+	 * <p>
+	 * Processes sharing the java-root, e.g. on shared storage, take turns via
+	 * an {@link UpgradeLock}: the first one downloads and unpacks, while the
+	 * others wait for it, then find and adopt its result.
+	 * </p>
+	 *
+	 * @return The Java installation folder, or {@code null} if there is no
+	 *          Java download for this platform.
+	 */
+	static Path install(Path root, BiConsumer<String, Double> subscriber,
+		ProgressStream progress) throws IOException
+	{
+		long[] backgroundRate = {-1};
+		try (UpgradeLock lock = UpgradeLock.acquire(root, () -> {
+			subscriber.accept("Waiting for another Java upgrade to finish...", Double.NaN);
+			if (RateLimiter.current() != RateLimiter.background()) {
+				// The user now waits on any background download; speed it up.
+				backgroundRate[0] = RateLimiter.background().rate();
+				RateLimiter.background().setRate(RateLimiter.foreground().rate());
+			}
+		}))
+		{
+			// Maybe a suitable Java is already installed, e.g. by another process.
+			JavaInstallation existing = JavaInstallation.best(
+				JavaIndex.installations(root), Java.recommendedVersion());
+			if (existing != null) {
+				Log.debug("Adopting existing Java installation: " + existing.home());
+				return existing.home().toAbsolutePath();
+			}
+			List<String> javaLinks = Java.getJavaLinks();
+			return javaLinks.isEmpty() ? null : stage(javaLinks, root, subscriber, progress);
+		}
+		finally {
+			// Once nobody waits anymore, background downloads slow down again.
+			if (backgroundRate[0] >= 0) RateLimiter.background().setRate(backgroundRate[0]);
+		}
+	}
+
+	/**
+	 * Downloads and unpacks the given Java archive into a fresh staging folder,
+	 * verifies it, and moves it into the java-root. If
+	 * {@link JavaTrimmer#isEnabled() enabled}, a trimmed runtime is then built
+	 * from it.
+	 *
+	 * @return The new Java installation folder within the java-root; the
+	 *          trimmed runtime if there is one.
+	 */
+	static Path stage(String javaLink, Path root,
+		BiConsumer<String, Double> subscriber, ProgressStream progress)
+		throws IOException
+	{
+		return stage(Collections.singletonList(javaLink), root, subscriber, progress);
+	}
+
+	/**
+	 * Downloads the Java archive available from the given mirrors, then
+	 * unpacks, verifies and moves it into the java-root, as
+	 * {@link #stage(String, Path, BiConsumer, ProgressStream)} does.
+	 */
+	static Path stage(List<String> javaLinks, Path root,
+		BiConsumer<String, Double> subscriber, ProgressStream progress)
+		throws IOException
+	{
+		String javaLink = javaLinks.get(0);
+		purgeStale(root);
+		// NB: The staging folder is specific to the archive, so that an
+		// interrupted attempt resumes where it left off, rather than starting
+		// over. Processes take turns via the upgrade lock, so never share it.
+		Path staging = staging(root, javaLink);
+
+		// Upon failure, keep what was unpacked so far, for next time.
+		Log.debug("Staging Java from " + javaLink + " into " + staging);
+		URL url = new URL(javaLink);
+		boolean cached = DownloadCache.contains(url);
+		Path unpacked = Java.install(javaLinks, staging, subscriber, progress);
+
+		try {
+			String error = unpacked == null ? "empty archive" : verify(unpacked);
+			if (error != null && cached && DownloadCache.remove(url)) {
+				// The cached archive may be outdated, e.g. if the link points at
+				// a moving "latest" release without validators; fetch it anew.
+				Log.debug("Cached Java is invalid (" + error + "); downloading again");
+				delete(staging.toFile());
+				Files.createDirectories(staging);
+				unpacked = Java.install(javaLinks, staging, subscriber, progress);
+				error = unpacked == null ? "empty archive" : verify(unpacked);
+			}
+			if (error != null) throw new IOException("Invalid Java: " + error);
+
+			Path target = root.resolve(unpacked.getFileName());
+			if (Files.exists(target)) {
+				throw new IOException("Java installation already exists: " + target);
+			}
+			move(unpacked, target);
+			JavaIndex.update(root);
+
+			// Optionally, point jvm-dir at a trimmed runtime instead.
+			if (JavaTrimmer.isEnabled()) {
+				Path trimmed = JavaTrimmer.tryTrim(target, root, subscriber);
+				if (trimmed != null) {
+					JavaIndex.update(root);
+					return trimmed;
+				}
+			}
+			return target.toAbsolutePath();
+		}
+		finally {
+			delete(staging.toFile());
+		}
+	}
+
+	/**
+	 * Unpacks the given archive into a fresh staging folder within the given
+	 * folder, then moves the unpacked folders and files into place, replacing
+	 * any of the same names. If unpacking is interrupted, the next attempt
+	 * resumes in the same staging folder.
+	 *
+	 * @param key Identifies the archive's content, e.g. its checksum, so that
+	 *          only an attempt at the same content gets resumed.
+	 * @return The folders and files moved into place.
+	 */
+	static List<Path> unpack(File archive, String key, Path root,
+		Consumer<String> outputConsumer) throws IOException
+	{
+		Path staging = staging(root, key);
+		Java.waitForTask(Archives.unpack(archive, staging.toFile(),
+			outputConsumer, null, true));
+		List<Path> moved = new ArrayList<>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(staging)) {
+			for (Path entry : entries) {
+				Path target = root.resolve(entry.getFileName());
+				if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) delete(target.toFile());
+				move(entry, target);
+				moved.add(target);
+			}
+		}
+		delete(staging.toFile());
+		if (moved.isEmpty()) throw new IOException("Empty archive: " + archive);
+		return moved;
+	}
+
+	/**
+	 * Checks that the given folder holds a usable Java installation: one of at
+	 * least the recommended version, for the target platform, with a
+	 * {@code java} executable.
+	 *
+	 * @return A description of the problem, or {@code null} if all is well.
+	 */
+	static String verify(Path dir) {
+		Path home = dir;
+		if (!Files.isRegularFile(home.resolve("release"))) {
+			// macOS bundle layout.
+			home = dir.resolve("Contents").resolve("Home");
+		}
+		JavaInstallation java = JavaInstallation.probe(home);
+		if (java == null) return "no release file";
+		if (java.version() == null) return "unknown version";
+		try {
+			String recommended = Java.recommendedVersion();
+			if (Java.compareVersions(java.version(), recommended) < 0) {
+				return "version " + java.version() + " is below " + recommended;
+			}
+		}
+		catch (IllegalStateException exc) {
+			Log.debug(exc); // No recommended version specified.
+		}
+		if (!java.isTargetArch()) return "wrong architecture: " + java.arch();
+		if (Relaunch.executable(home) == null) return "no java executable";
+		return null;
+	}
+
+	/** Gets the staging folder for the given key, creating it if needed. */
+	private static Path staging(Path root, String key) throws IOException {
+		Path staging = root.resolve(STAGING_PREFIX + DownloadCache.sha256(key).substring(0, 16));
+		Files.createDirectories(staging);
+		staging.toFile().setLastModified(System.currentTimeMillis());
+		return staging;
+	}
+
+	/** Moves the given file or folder, atomically if possible. */
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException exc) {
+			Files.move(source, target);
+		}
+	}
+
+	/** Deletes staging folders left behind by interrupted stagings. */
+	private static void purgeStale(Path root) {
+		long cutoff = System.currentTimeMillis() - STALE_MILLIS;
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, STAGING_PREFIX + "*")) {
+			for (Path dir : dirs) {
+				File f = dir.toFile();
+				if (f.lastModified() < cutoff) delete(f);
+			}
+		}
+		catch (IOException exc) {
+			Log.debug(exc);
+		}
+	}
+
+	/** Deletes the given file or folder, with all its contents. */
+	static void delete(File f) {
+		// Never follow symbolic links out of the folder being deleted.
+		boolean link = Files.isSymbolicLink(f.toPath());
+		File[] children = !link && f.isDirectory() ? f.listFiles() : null;
+		if (children != null) for (File child : children) delete(child);
+		f.delete();
+	}
+}
@@ -0,0 +1,189 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for the launcher's I/O tasks, such as downloads and
+ * unpacking.
+ * <p>
+ * At most {@code scijava.app.io-threads} tasks (default 8) run at once; the
+ * rest are queued. Tasks run on virtual threads where available (Java 21+),
+ * or else on a pool of daemon threads which expire when idle, so the
+ * executor never keeps the JVM alive. Because of the bound, tasks must not
+ * block waiting for other tasks.
+ * </p>
+ * <p>
+ * Cancelling a task's {@link Future} interrupts it, and additionally runs any
+ * hooks the task registered via {@link #onCancel(Runnable)}, for operations
+ * that do not respond to interruption, such as blocking socket reads or an
+ * external process.
+ * </p>
+ */
+final class TaskExecutor {
+
+	private static final int DEFAULT_THREADS = 8;
+
+	private static final ThreadLocal<Task<?>> CURRENT = new ThreadLocal<>();
+
+	private static Executor executor;
+
+	private TaskExecutor() { }
+
+	/** Submits the given task for execution. */
+	static <T> Future<T> submit(Callable<T> callable) {
+		Task<T> task = new Task<>(callable);
+		executor().execute(task);
+		return task;
+	}
+
+	/**
+	 * Registers a hook to run if the current task gets cancelled. Does
+	 * nothing when not called from within a task. If the task was already
+	 * cancelled, the hook runs right away.
+	 */
+	static void onCancel(Runnable hook) {
+		Task<?> task = CURRENT.get();
+		if (task != null) task.onCancel(hook);
+	}
+
+	// -- Helper methods --
+
+	private static synchronized Executor executor() {
+		if (executor == null) {
+			int threads = Math.max(1, Integer.getInteger("scijava.app.io-threads", DEFAULT_THREADS));
+			ExecutorService virtual = virtualThreadExecutor();
+			if (virtual != null) {
+				// Virtual threads are plentiful; bound the tasks running at once.
+				Semaphore permits = new Semaphore(threads);
+				executor = command -> virtual.execute(() -> {
+					permits.acquireUninterruptibly();
+					try {
+						command.run();
+					}
+					finally {
+						permits.release();
+					}
+				});
+			}
+			else {
+				AtomicInteger count = new AtomicInteger();
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+						Thread t = new Thread(r, "Launcher-IO-" + count.incrementAndGet());
+						// Don't let this thread prevent shutdown of the JVM.
+						t.setDaemon(true);
+						return t;
+					});
+				pool.allowCoreThreadTimeOut(true);
+				executor = pool;
+			}
+		}
+		return executor;
+	}
+
+	/** Creates a virtual thread per task executor, if this Java has them. */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException exc) {
+			return null;
+		}
+	}
+
+	/** A task whose cancellation also runs its registered hooks. */
+	private static class Task<T> extends FutureTask<T> {
+
+		private final List<Runnable> hooks = new ArrayList<>();
+
+		Task(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		public void run() {
+			CURRENT.set(this);
+			try {
+				super.run();
+			}
+			finally {
+				CURRENT.remove();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				List<Runnable> toRun;
+				synchronized (hooks) {
+					toRun = new ArrayList<>(hooks);
+					hooks.clear();
+				}
+				for (Runnable hook : toRun) runHook(hook);
+			}
+			return cancelled;
+		}
+
+		void onCancel(Runnable hook) {
+			synchronized (hooks) {
+				if (!isCancelled()) {
+					hooks.add(hook);
+					return;
+				}
+			}
+			runHook(hook);
+		}
+
+		private static void runHook(Runnable hook) {
+			try {
+				hook.run();
+			}
+			catch (RuntimeException exc) {
+				Log.debug(exc);
+			}
+		}
+	}
+}
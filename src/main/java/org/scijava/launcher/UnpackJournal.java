@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of the archive entries unpacked into a folder so far, which lets an
+ * interrupted unpacking resume where it left off.
+ * <p>
+ * Each completely unpacked entry is recorded with its size, CRC-32 checksum,
+ * and the modification time of the resulting file. When unpacking again, an
+ * entry is skipped if its file still matches the journal, or else if the
+ * file's size and checksum match the entry. The journal is deleted once
+ * unpacking completes.
+ * </p>
+ */
+final class UnpackJournal implements Closeable {
+
+	/** Name of the journal file within the destination folder. */
+	static final String JOURNAL_FILE = ".scijava-unpack-journal";
+
+	private final Path journalFile;
+	private final Map<String, long[]> done = new HashMap<>();
+	private BufferedWriter writer;
+
+	UnpackJournal(Path destDir) throws IOException {
+		journalFile = destDir.resolve(JOURNAL_FILE);
+		if (Files.isRegularFile(journalFile)) {
+			List<String> lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+			for (String line : lines) {
+				String[] tokens = line.split("\t", 4);
+				if (tokens.length < 4) continue; // Truncated by an interruption.
+				try {
+					done.put(tokens[3], new long[] {Long.parseLong(tokens[0]),
+						Long.parseLong(tokens[1]), Long.parseLong(tokens[2])});
+				}
+				catch (NumberFormatException exc) {
+					Log.debug(exc);
+				}
+			}
+			if (!done.isEmpty()) Log.debug("Resuming unpacking into " + destDir);
+		}
+		Files.createDirectories(destDir);
+		writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+			StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Gets whether the given entry was already unpacked into the given file.
+	 *
+	 * @param name The entry's name within the archive.
+	 * @param size The entry's uncompressed size.
+	 * @param crc The entry's CRC-32 checksum.
+	 * @param file The file into which the entry unpacks.
+	 */
+	boolean isDone(String name, long size, long crc, Path file) throws IOException {
+		if (size < 0 || crc < 0 || !Files.isRegularFile(file) || Files.size(file) != size) {
+			return false;
+		}
+		long[] record = done.get(name);
+		if (record != null && record[0] == size && record[1] == crc &&
+			record[2] == file.toFile().lastModified())
+		{
+			return true;
+		}
+		// Not journaled, but maybe unpacked all the same.
+		if (crc(file) != crc) return false;
+		record(name, size, crc, file);
+		return true;
+	}
+
+	/** Records that the given entry was completely unpacked into the given file. */
+	void record(String name, long size, long crc, Path file) throws IOException {
+		long mtime = file.toFile().lastModified();
+		writer.write(size + "\t" + crc + "\t" + mtime + "\t" + name);
+		writer.newLine();
+		writer.flush();
+		done.put(name, new long[] {size, crc, mtime});
+	}
+
+	/** Marks the unpacking as complete, deleting the journal. */
+	void complete() throws IOException {
+		close();
+		Files.deleteIfExists(journalFile);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (writer == null) return;
+		writer.close();
+		writer = null;
+	}
+
+	private static long crc(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file)) {
+			int r;
+			while ((r = in.read(buf)) > 0) crc.update(buf, 0, r);
+		}
+		return crc.getValue();
+	}
+}
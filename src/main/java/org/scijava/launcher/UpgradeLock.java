@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a java-root folder, held while upgrading Java into it.
+ * <p>
+ * The lock is an OS-level lock on a file within the java-root, so it
+ * coordinates all processes sharing that folder, including those on other
+ * machines if the file system supports locking. The operating system releases
+ * it when the holding process dies, so it never goes stale. Threads within
+ * one process are serialized as well, since OS-level file locks are held per
+ * process. If the file system does not support locking at all, upgrades
+ * proceed uncoordinated, as before.
+ * </p>
+ */
+final class UpgradeLock implements Closeable {
+
+	/** Name of the lock file within the java-root. */
+	static final String LOCK_FILE = ".scijava-upgrade.lock";
+
+	private static final ReentrantLock LOCAL = new ReentrantLock();
+
+	private final FileChannel channel;
+	private final FileLock lock;
+
+	private UpgradeLock(FileChannel channel, FileLock lock) {
+		this.channel = channel;
+		this.lock = lock;
+	}
+
+	/**
+	 * Acquires the upgrade lock of the given java-root, waiting as long as
+	 * necessary.
+	 *
+	 * @param root The java-root folder.
+	 * @param onWait Callback invoked once if the lock is held elsewhere and we
+	 *          need to wait for it, or {@code null}.
+	 */
+	static UpgradeLock acquire(Path root, Runnable onWait) throws IOException {
+		if (!LOCAL.tryLock()) {
+			if (onWait != null) onWait.run();
+			onWait = null;
+			try {
+				LOCAL.lockInterruptibly();
+			}
+			catch (InterruptedException exc) {
+				throw new InterruptedIOException("Interrupted waiting for upgrade lock");
+			}
+		}
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(root.resolve(LOCK_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock lock;
+			try {
+				lock = channel.tryLock();
+				if (lock == null) {
+					Log.debug("Waiting for upgrade lock in " + root);
+					if (onWait != null) onWait.run();
+					lock = channel.lock();
+				}
+			}
+			catch (IOException exc) {
+				if (!channel.isOpen()) throw exc; // Interrupted while waiting.
+				Log.debug("File locking unavailable in " + root);
+				Log.debug(exc);
+				lock = null;
+			}
+			return new UpgradeLock(channel, lock);
+		}
+		catch (IOException | RuntimeException exc) {
+			if (channel != null) channel.close();
+			LOCAL.unlock();
+			throw exc;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (lock != null) lock.release();
+			channel.close();
+		}
+		finally {
+			LOCAL.unlock();
+		}
+	}
+}
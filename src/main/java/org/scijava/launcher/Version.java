@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, pre-parsed version string.
+ * <p>
+ * A version consists of dot-separated tokens, each parsed once into a numeric
+ * component (its leading digits) plus a qualifier (the remainder). Comparison
+ * follows the same rules as {@link Versions#compare(String, String)}, but
+ * operates on the parsed form, so that comparing two {@code Version}s
+ * allocates nothing. Instances are obtained via {@link #parse(String)}, which
+ * caches them, since the same handful of version strings tend to be compared
+ * over and over.
+ * </p>
+ */
+public final class Version implements Comparable<Version> {
+
+	/** Upper bound on the number of cached instances. */
+	private static final int MAX_CACHE_SIZE = 512;
+
+	private static final Map<String, Version> CACHE = new ConcurrentHashMap<>();
+
+	private final String version;
+
+	/** Leading number of each token, or -1 if it does not start with a digit. */
+	private final long[] numbers;
+
+	/** Remainder of each token after its leading digits. */
+	private final String[] qualifiers;
+
+	private final String[] tokens;
+
+	private Version(final String version) {
+		this.version = version;
+		tokens = splitDots(version);
+		numbers = new long[tokens.length];
+		qualifiers = new String[tokens.length];
+		for (int t = 0; t < tokens.length; t++) {
+			final String token = tokens[t];
+			final int i = digitIndex(token);
+			numbers[t] = i > 0 ? Long.parseLong(token.substring(0, i)) : -1;
+			qualifiers[t] = i > 0 ? token.substring(i) : token;
+		}
+	}
+
+	/**
+	 * Gets the {@code Version} corresponding to the given version string.
+	 *
+	 * @param version The version string to parse.
+	 * @return The parsed version, possibly shared with earlier callers.
+	 * @throws NumberFormatException if a numeric component is out of range.
+	 */
+	public static Version parse(final String version) {
+		Version v = CACHE.get(version);
+		if (v != null) return v;
+		v = new Version(version);
+		if (CACHE.size() < MAX_CACHE_SIZE) {
+			final Version existing = CACHE.putIfAbsent(version, v);
+			if (existing != null) return existing;
+		}
+		return v;
+	}
+
+	/** Gets the number of dot-separated tokens. */
+	public int size() {
+		return tokens.length;
+	}
+
+	/**
+	 * Gets the leading number of the given token, or -1 if the token does not
+	 * start with a digit.
+	 */
+	public long number(final int index) {
+		return numbers[index];
+	}
+
+	/** Gets the remainder of the given token after its leading digits. */
+	public String qualifier(final int index) {
+		return qualifiers[index];
+	}
+
+	@Override
+	public int compareTo(final Version that) {
+		if (this == that) return 0;
+		final int count = Math.min(size(), that.size());
+		for (int t = 0; t < count; t++) {
+			final int c = compareToken(that, t);
+			if (c != 0) return c;
+		}
+		if (size() == that.size()) return 0;
+		// NB: Token count differs. More tokens means newer -- e.g. 1.5 < 1.5.1.
+		return size() < that.size() ? -1 : 1;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return o instanceof Version && compareTo((Version) o) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = size();
+		for (int t = 0; t < size(); t++) {
+			// NB: Tokens without leading digits compare as whole strings.
+			hash = 31 * hash + (numbers[t] < 0 ? tokens[t].hashCode() :
+				31 * Long.hashCode(numbers[t]) + qualifiers[t].hashCode());
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Compares one token of this version against the same token of another.
+	 */
+	private int compareToken(final Version that, final int t) {
+		final long d1 = numbers[t], d2 = that.numbers[t];
+		final String suffix1, suffix2;
+		if (d1 >= 0 && d2 >= 0) {
+			// Versions start with digits; compare them numerically.
+			if (d1 < d2) return -1;
+			if (d1 > d2) return 1;
+			suffix1 = qualifiers[t];
+			suffix2 = that.qualifiers[t];
+		}
+		else {
+			suffix1 = tokens[t];
+			suffix2 = that.tokens[t];
+		}
+
+		// Final version (empty string) is larger than non-final (non-empty).
+		// For example: 2.0.0 > 2.0.0-beta-1.
+		if (suffix1.isEmpty() && suffix2.isEmpty()) return 0;
+		if (suffix1.isEmpty()) return 1;
+		if (suffix2.isEmpty()) return -1;
+
+		// Compare lexicographically.
+		return suffix1.compareTo(suffix2);
+	}
+
+	/**
+	 * Splits the given version string by dots.
+	 */
+	private static String[] splitDots(final String s) {
+		// NB: -1 split limit causes split not to remove empty values.
+		// See: https://stackoverflow.com/a/14602089/1207769
+		return s.isEmpty() ? new String[0] : s.split("\\.", -1);
+	}
+
+	/**
+	 * Gets the subsequent index to all the given string's leading digits.
+	 */
+	private static int digitIndex(final String s) {
+		int index = 0;
+		for (int i = 0; i < s.length(); i++) {
+			final char ch = s.charAt(index);
+			if (ch < '0' || ch > '9') break;
+			index++;
+		}
+		return index;
+	}
+}
@@ -29,8 +29,17 @@
 
 package org.scijava.launcher;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Utility methods for working with version strings.
+ * <p>
+ * The string-based methods here parse their arguments into {@link Version}
+ * objects, which are cached; code comparing versions repeatedly can also work
+ * with {@link Version} directly.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -47,15 +56,39 @@ public final class Versions {
 	 * argument is less than, equal to, or greater than the second.
 	 */
 	public static int compare(final String v1, final String v2) {
-		final String[] t1 = splitDots(v1), t2 = splitDots(v2);
-		final int count = Math.min(t1.length, t2.length);
-		for (int t = 0; t < count; t++) {
-			final int c = compareToken(t1[t], t2[t]);
-			if (c != 0) return c;
+		return Version.parse(v1).compareTo(Version.parse(v2));
+	}
+
+	/**
+	 * Gets the newest of the given version strings.
+	 *
+	 * @param versions The version strings to consider.
+	 * @return The newest version string, or {@code null} if there are none.
+	 */
+	public static String max(final Collection<String> versions) {
+		Version max = null;
+		for (final String v : versions) {
+			final Version version = Version.parse(v);
+			if (max == null || version.compareTo(max) > 0) max = version;
+		}
+		return max == null ? null : max.toString();
+	}
+
+	/**
+	 * Sorts the given list of version strings in place, from oldest to newest.
+	 * Each version string is parsed only once.
+	 *
+	 * @param versions The version strings to sort.
+	 */
+	public static void sort(final List<String> versions) {
+		final Version[] parsed = new Version[versions.size()];
+		for (int i = 0; i < parsed.length; i++) {
+			parsed[i] = Version.parse(versions.get(i));
+		}
+		Arrays.sort(parsed);
+		for (int i = 0; i < parsed.length; i++) {
+			versions.set(i, parsed[i].toString());
 		}
-		if (t1.length == t2.length) return 0;
-		// NB: Token count differs. More tokens means newer -- e.g. 1.5 < 1.5.1.
-		return t1.length < t2.length ? -1 : 1;
 	}
 
 	/**
@@ -87,52 +120,4 @@ public final class Versions {
 			return null;
 		}
 	}
-
-	/**
-	 * Splits the given version string by dots.
-	 */
-	private static String[] splitDots(final String s) {
-		// NB: -1 split limit causes split not to remove empty values.
-		// See: https://stackoverflow.com/a/14602089/1207769
-		return s.isEmpty() ? new String[0] : s.split("\\.", -1);
-	}
-
-	/**
-	 * Compares one token of a multi-token version string.
-	 */
-	private static int compareToken(final String t1, final String t2) {
-		final int i1 = digitIndex(t1), i2 = digitIndex(t2);
-		String suffix1 = t1, suffix2 = t2;
-		if (i1 > 0 && i2 > 0) {
-			// Versions start with digits; compare them numerically.
-			final long d1 = Long.parseLong(t1.substring(0, i1));
-			final long d2 = Long.parseLong(t2.substring(0, i2));
-			if (d1 < d2) return -1;
-			if (d1 > d2) return 1;
-			suffix1 = t1.substring(i1);
-			suffix2 = t2.substring(i2);
-		}
-
-		// Final version (empty string) is larger than non-final (non-empty).
-		// For example: 2.0.0 > 2.0.0-beta-1.
-		if (suffix1.isEmpty() && suffix2.isEmpty()) return 0;
-		if (suffix1.isEmpty()) return 1;
-		if (suffix2.isEmpty()) return -1;
-
-		// Compare lexicographically.
-		return suffix1.compareTo(suffix2);
-	}
-
-	/**
-	 * Gets the subsequent index to all the given string's leading digits.
-	 */
-	private static int digitIndex(final String s) {
-		int index = 0;
-		for (int i = 0; i < s.length(); i++) {
-			final char ch = s.charAt(index);
-			if (ch < '0' || ch > '9') break;
-			index++;
-		}
-		return index;
-	}
 }
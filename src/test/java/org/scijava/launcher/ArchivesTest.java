@@ -34,17 +34,21 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Tests {@link Archives}.
@@ -64,6 +68,77 @@ public class ArchivesTest {
 		unpackAndAssert("test-bundle.tar.gz", "tarred-bundle", "Hello tar.gz!");
 	}
 
+	@Test
+	public void testUnzipWithHardLinks() throws Exception {
+		unpackAndAssertLinked("test-bundle.zip", "zipped-bundle");
+	}
+
+	@Test
+	public void testUntarWithHardLinks() throws Exception {
+		assumeFalse(System.getProperty("os.name").contains("Windows"));
+		unpackAndAssertLinked("test-bundle.tar.gz", "tarred-bundle");
+	}
+
+	@Test
+	public void testResumeUnzip() throws Exception {
+		File archive = new File("src/test/resources/test-bundle.zip");
+		Path destPath = Files.createTempDirectory("scijava-app-launcher-");
+		destPath.toFile().deleteOnExit();
+		Path readme = destPath.resolve("zipped-bundle").resolve("readme.txt");
+		Path data = destPath.resolve("zipped-bundle").resolve("data.dat");
+
+		// Interrupt unpacking after the first file.
+		try {
+			Archives.unpack(archive, destPath.toFile(), entry -> {
+				if (entry.endsWith("data.dat")) throw new IllegalStateException("Interrupted");
+			}, null, true).get();
+			throw new AssertionError("Expected interruption");
+		}
+		catch (ExecutionException exc) {
+			assertTrue(exc.getCause() instanceof IllegalStateException);
+		}
+		assertTrue(Files.exists(destPath.resolve(UnpackJournal.JOURNAL_FILE)));
+		assertTrue(Files.exists(readme));
+		assertFalse(Files.exists(data));
+
+		// Tamper with the unpacked file behind the journal's back: since its
+		// size and modification time still match, resuming leaves it alone.
+		long mtime = readme.toFile().lastModified();
+		byte[] tampered = Files.readAllBytes(readme);
+		tampered[0] = 'J';
+		Files.write(readme, tampered);
+		assertTrue(readme.toFile().setLastModified(mtime));
+
+		List<String> output = new ArrayList<>();
+		Archives.unpack(archive, destPath.toFile(), output::add, null, true).get();
+		assertEquals(Arrays.asList("zipped-bundle/", "zipped-bundle/readme.txt",
+			"zipped-bundle/data.dat"), output);
+		assertArrayEquals(tampered, Files.readAllBytes(readme));
+		assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, Files.readAllBytes(data));
+		assertFalse(Files.exists(destPath.resolve(UnpackJournal.JOURNAL_FILE)));
+	}
+
+	private void unpackAndAssertLinked(String archiveFilename, String folderName) throws Exception {
+		File archive = new File("src/test/resources/" + archiveFilename);
+		Path destPath = Files.createTempDirectory("scijava-app-launcher-");
+		destPath.toFile().deleteOnExit();
+		Path first = Files.createDirectories(destPath.resolve("first"));
+		Path second = Files.createDirectories(destPath.resolve("second"));
+		Archives.unpack(archive, first.toFile(), null).get();
+
+		// A second copy of the archive links to the files of the first.
+		Path source = first.resolve(folderName);
+		Archives.unpack(archive, second.toFile(), null, Collections.singletonList(source)).get();
+		for (String name : Arrays.asList("readme.txt", "data.dat")) {
+			Path original = source.resolve(name);
+			Path linked = second.resolve(folderName).resolve(name);
+			assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(linked));
+			Object originalKey = Files.readAttributes(original, BasicFileAttributes.class).fileKey();
+			assumeTrue(originalKey != null); // File identity is unknown here.
+			assertEquals(originalKey, Files.readAttributes(linked, BasicFileAttributes.class).fileKey());
+		}
+	}
+
 	private void unpackAndAssert(String archiveFilename, String folderName, String readmeMessage) throws Exception {
 		// Unpack the file to a temporary directory.
 		File archive = new File("src/test/resources/" + archiveFilename);
@@ -76,6 +151,8 @@ public class ArchivesTest {
 		List<String> output = new ArrayList<>();
 		Archives.unpack(archive, destFile, output::add).get();
 		assertEquals(expectedOutput, output);
+		// Only resumable unpacking keeps a journal.
+		assertFalse(Files.exists(destPath.resolve(UnpackJournal.JOURNAL_FILE)));
 
 		// Check for unpacked folder.
 		Path unpackedFolder = destPath.resolve(folderName);
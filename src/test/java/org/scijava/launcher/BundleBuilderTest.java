@@ -0,0 +1,190 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Tests {@link BundleBuilder}, against a local HTTP server.
+ */
+public class BundleBuilderTest {
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-");
+
+	private final Map<String, byte[]> files = new HashMap<>();
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+	private HttpServer server;
+	private Path outputDir;
+	private URL javaLinks;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		String base = "http://127.0.0.1:" + server.getAddress().getPort();
+		files.put("/jdk-linux.tar.gz", Files.readAllBytes(Paths.get("src/test/resources/test-bundle.tar.gz")));
+		files.put("/jdk-win.zip", Files.readAllBytes(Paths.get("src/test/resources/test-bundle.zip")));
+		files.put("/java-links.txt", (
+			"linux-x64=" + base + "/jdk-linux.tar.gz\n" +
+			"windows-x64=" + base + "/jdk-win.zip\n").getBytes(StandardCharsets.UTF_8));
+		server.createContext("/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String range = exchange.getRequestHeaders().getFirst("Range");
+			requests.add(range == null ? path : path + " " + range);
+			byte[] content = files.get(path);
+			if (content == null) {
+				exchange.sendResponseHeaders(404, -1);
+				exchange.close();
+				return;
+			}
+			int start = 0;
+			Matcher m = range == null ? null : RANGE.matcher(range);
+			if (m != null && m.matches()) {
+				start = Integer.parseInt(m.group(1));
+				exchange.getResponseHeaders().add("Content-Range",
+					"bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+			}
+			exchange.sendResponseHeaders(start > 0 ? 206 : 200, content.length - start);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(content, start, content.length - start);
+			}
+		});
+		server.start();
+		javaLinks = new URL(base + "/java-links.txt");
+		outputDir = Files.createTempDirectory("scijava-bundle-");
+		outputDir.toFile().deleteOnExit();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testBuild() throws Exception {
+		assumeFalse(System.getProperty("os.name").contains("Windows"));
+		Map<String, Path> roots = BundleBuilder.build(javaLinks, outputDir,
+			Collections.emptyList(), 2);
+
+		assertEquals(Arrays.asList("linux-x64", "windows-x64"), new ArrayList<>(roots.keySet()));
+		assertTrue(Files.exists(roots.get("linux-x64").resolve("tarred-bundle/readme.txt")));
+		assertTrue(Files.exists(roots.get("windows-x64").resolve("zipped-bundle/readme.txt")));
+		Path downloads = outputDir.resolve(BundleBuilder.DOWNLOADS);
+		List<String> checksums = Files.readAllLines(downloads.resolve(BundleBuilder.CHECKSUMS));
+		assertEquals(2, checksums.size());
+		assertTrue(checksums.contains(
+			DownloadCache.sha256(downloads.resolve("jdk-win.zip").toFile()) + "  jdk-win.zip"));
+
+		// Building again only fetches the java-links file.
+		requests.clear();
+		BundleBuilder.build(javaLinks, outputDir, Collections.emptyList(), 2);
+		assertEquals(Collections.singletonList("/java-links.txt"), requests);
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		byte[] archive = files.get("/jdk-win.zip");
+		Path downloads = Files.createDirectories(outputDir.resolve(BundleBuilder.DOWNLOADS));
+		Files.write(downloads.resolve("jdk-win.zip.windows-x64.part"), Arrays.copyOf(archive, 100));
+
+		BundleBuilder.build(javaLinks, outputDir, Collections.singletonList("windows-x64"), 1);
+
+		assertEquals(Arrays.asList("/java-links.txt", "/jdk-win.zip bytes=100-"), requests);
+		assertArrayEquals(archive, Files.readAllBytes(downloads.resolve("jdk-win.zip")));
+		assertTrue(Files.exists(outputDir.resolve("windows-x64/zipped-bundle/data.dat")));
+	}
+
+	@Test
+	public void testChecksumMismatch() throws Exception {
+		List<String> platforms = Collections.singletonList("windows-x64");
+		BundleBuilder.build(javaLinks, outputDir, platforms, 1);
+		Path archive = outputDir.resolve(BundleBuilder.DOWNLOADS).resolve("jdk-win.zip");
+		Files.write(archive, new byte[] {1, 2, 3});
+
+		requests.clear();
+		BundleBuilder.build(javaLinks, outputDir, platforms, 1);
+		assertEquals(Arrays.asList("/java-links.txt", "/jdk-win.zip"), requests);
+		assertArrayEquals(files.get("/jdk-win.zip"), Files.readAllBytes(archive));
+	}
+
+	@Test
+	public void testSuperseded() throws Exception {
+		assumeFalse(System.getProperty("os.name").contains("Windows"));
+		List<String> platforms = Collections.singletonList("windows-x64");
+		Path root = BundleBuilder.build(javaLinks, outputDir, platforms, 1).get("windows-x64");
+		assertTrue(Files.isDirectory(root.resolve("zipped-bundle")));
+
+		// A new archive replaces the Java folders of the old one.
+		files.put("/java-links.txt", ("windows-x64=" +
+			javaLinks.toString().replace("java-links.txt", "jdk-linux.tar.gz") +
+			"\n").getBytes(StandardCharsets.UTF_8));
+		BundleBuilder.build(javaLinks, outputDir, platforms, 1);
+		assertTrue(Files.exists(root.resolve("tarred-bundle/readme.txt")));
+		assertFalse(Files.exists(root.resolve("zipped-bundle")));
+		try (Stream<Path> entries = Files.list(root)) {
+			assertEquals(Arrays.asList(BundleBuilder.MARKER, "tarred-bundle"), entries
+				.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testUnknownPlatform() {
+		assertThrows(IOException.class, () -> BundleBuilder.build(javaLinks,
+			outputDir, Collections.singletonList("amiga-m68k"), 1));
+	}
+}
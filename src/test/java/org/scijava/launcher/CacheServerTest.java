@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link CacheServer}, in front of a local stand-in for the upstream
+ * Java download site.
+ */
+public class CacheServerTest {
+
+	private final byte[] archive = new byte[200_000];
+	private final AtomicInteger upstreamDownloads = new AtomicInteger();
+	private final AtomicInteger linksFetches = new AtomicInteger();
+	private URL upstreamLinks;
+	private HttpServer upstream;
+	private CacheServer cacheServer;
+	private Path cacheDir;
+	private volatile long trickleMillis;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		new Random(7).nextBytes(archive);
+		cacheDir = Files.createTempDirectory("scijava-download-cache-");
+		System.setProperty("scijava.app.download-cache", cacheDir.toString());
+
+		upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		String base = "http://127.0.0.1:" + upstream.getAddress().getPort();
+		byte[] links = ("# Java for everyone\n" +
+			"linux-x64=" + base + "/zulu-linux.tar.gz " + base + "/mirror/zulu-linux.tar.gz\n" +
+			"linux-x64=" + base + "/other/zulu-linux.tar.gz\n" +
+			"windows-x64=" + base + "/zulu-win.zip\n").getBytes(StandardCharsets.UTF_8);
+		upstream.createContext("/", exchange -> {
+			boolean isLinks = exchange.getRequestURI().getPath().equals("/java-links.txt");
+			if ("HEAD".equals(exchange.getRequestMethod())) {
+				// Checked by the download cache; no content to count.
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+				return;
+			}
+			// NB: Mirror probes request a range; count only whole downloads.
+			boolean isProbe = exchange.getRequestHeaders().containsKey("Range");
+			if (isLinks) linksFetches.incrementAndGet();
+			else if (!isProbe) upstreamDownloads.incrementAndGet();
+			byte[] content = isLinks ? links : archive;
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				if (isLinks || trickleMillis == 0) out.write(content);
+				else {
+					// A slow upstream: the archive in ten pieces, over a while.
+					int piece = content.length / 10 + 1;
+					for (int i = 0; i < content.length; i += piece) {
+						Thread.sleep(trickleMillis);
+						out.write(content, i, Math.min(piece, content.length - i));
+						out.flush();
+					}
+				}
+			}
+			catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		upstream.start();
+		upstreamLinks = new URL(base + "/java-links.txt");
+		cacheServer = CacheServer.start(upstreamLinks,
+			new InetSocketAddress("127.0.0.1", 0));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		cacheServer.stop();
+		upstream.stop(0);
+		System.clearProperty("scijava.app.download-cache");
+		try (Stream<Path> paths = Files.walk(cacheDir)) {
+			paths.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testRewrittenLinks() throws IOException {
+		List<String> lines = Downloader.downloadText(url(CacheServer.LINKS_PATH));
+		assertEquals(3, lines.size(), lines.toString());
+		assertEquals("# Java for everyone", lines.get(0));
+		String base = url(CacheServer.ARCHIVES_PATH).toString();
+		assertTrue(lines.get(1).startsWith("linux-x64=" + base), lines.get(1));
+		assertTrue(lines.get(1).endsWith("/zulu-linux.tar.gz"), lines.get(1));
+		assertTrue(lines.get(2).startsWith("windows-x64=" + base), lines.get(2));
+		assertTrue(lines.get(2).endsWith("/zulu-win.zip"), lines.get(2));
+	}
+
+	@Test
+	public void testPublicURL() throws IOException {
+		CacheServer server = CacheServer.start(upstreamLinks,
+			new InetSocketAddress("127.0.0.1", 0), new URL("http://cache.example.lan:8088/"));
+		try {
+			// NB: The client's Host header does not matter.
+			HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" +
+				server.port() + CacheServer.LINKS_PATH).openConnection();
+			conn.setRequestProperty("Host", "evil.example.com");
+			String links = new String(read(conn), StandardCharsets.UTF_8);
+			assertTrue(links.contains("windows-x64=http://cache.example.lan:8088" +
+				CacheServer.ARCHIVES_PATH), links);
+			assertFalse(links.contains("evil"), links);
+		}
+		finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testRefreshRateLimited() throws IOException {
+		link("windows-x64");
+		assertEquals(1, linksFetches.get());
+		// Requests for unknown archives refresh the links only once in a while,
+		// not right after they were fetched.
+		for (int i = 0; i < 3; i++) {
+			HttpURLConnection conn = (HttpURLConnection)
+				url(CacheServer.ARCHIVES_PATH + "unknown" + i + "/x.zip").openConnection();
+			assertEquals(404, conn.getResponseCode());
+		}
+		assertEquals(1, linksFetches.get());
+	}
+
+	@Test
+	public void testArchiveFetchedOnce() throws Exception {
+		// Several clients at once wait for a single upstream download.
+		URL link = link("windows-x64");
+		List<File> dests = new ArrayList<>();
+		List<Future<Void>> downloads = new ArrayList<>();
+		try {
+			for (int i = 0; i < 3; i++) {
+				File dest = Files.createTempFile("scijava-cache-server-", ".zip").toFile();
+				dests.add(dest);
+				downloads.add(Downloader.downloadWithProgress(link, dest, null));
+			}
+			for (Future<Void> download : downloads) download.get();
+			for (File dest : dests) {
+				assertArrayEquals(archive, Files.readAllBytes(dest.toPath()));
+			}
+		}
+		finally {
+			for (File dest : dests) dest.delete();
+		}
+		assertEquals(1, upstreamDownloads.get());
+	}
+
+	@Test
+	public void testRanges() throws Exception {
+		URL link = link("linux-x64");
+
+		HttpURLConnection conn = request(link, "bytes=10-19");
+		assertEquals(206, conn.getResponseCode());
+		assertEquals("bytes 10-19/" + archive.length, conn.getHeaderField("Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(archive, 10, 20), read(conn));
+
+		conn = request(link, "bytes=-5");
+		assertEquals(206, conn.getResponseCode());
+		assertArrayEquals(Arrays.copyOfRange(archive, archive.length - 5, archive.length), read(conn));
+
+		conn = request(link, "bytes=" + archive.length + "-");
+		assertEquals(416, conn.getResponseCode());
+		assertEquals("bytes */" + archive.length, conn.getHeaderField("Content-Range"));
+
+		// An interrupted download resumes where it left off.
+		File dest = Files.createTempFile("scijava-cache-server-", ".tar.gz").toFile();
+		try {
+			Files.write(dest.toPath(), Arrays.copyOf(archive, 50_000));
+			Downloader.resume(Arrays.asList(link), dest, null).get();
+			assertArrayEquals(archive, Files.readAllBytes(dest.toPath()));
+		}
+		finally {
+			dest.delete();
+		}
+		assertEquals(1, upstreamDownloads.get());
+	}
+
+	@Test
+	public void testSlowUpstream() throws Exception {
+		URL link = link("windows-x64");
+		trickleMillis = 300;
+		// The archive takes 3 s to arrive from upstream, but the client, which
+		// gives up after 1 s without data, gets it as it arrives.
+		HttpURLConnection conn = (HttpURLConnection) link.openConnection();
+		conn.setReadTimeout(1000);
+		assertEquals(200, conn.getResponseCode());
+		assertArrayEquals(archive, read(conn));
+
+		// A client arriving after the download gets it all, too.
+		assertArrayEquals(archive, read((HttpURLConnection) link.openConnection()));
+		assertEquals(1, upstreamDownloads.get());
+	}
+
+	@Test
+	public void testOnlyArchivesServed() throws IOException {
+		URL link = link("windows-x64");
+		// NB: Delta upgrades look for a manifest next to the archive.
+		for (String suffix : Arrays.asList(".manifest", "/x", "x")) {
+			HttpURLConnection conn = (HttpURLConnection) new URL(link + suffix).openConnection();
+			assertEquals(404, conn.getResponseCode(), suffix);
+		}
+		String key = link.getPath().split("/")[2];
+		HttpURLConnection conn = (HttpURLConnection)
+			url(CacheServer.ARCHIVES_PATH + key + "/other.zip").openConnection();
+		assertEquals(404, conn.getResponseCode());
+		assertEquals(0, upstreamDownloads.get());
+	}
+
+	@Test
+	public void testLocalAddresses() throws IOException {
+		assertTrue(CacheServer.isLocal(InetAddress.getByName("127.0.0.1")));
+		assertTrue(CacheServer.isLocal(InetAddress.getByName("192.168.1.20")));
+		assertTrue(CacheServer.isLocal(InetAddress.getByName("10.0.0.5")));
+		assertTrue(CacheServer.isLocal(InetAddress.getByName("fd12:3456::1")));
+		assertFalse(CacheServer.isLocal(InetAddress.getByName("8.8.8.8")));
+		assertFalse(CacheServer.isLocal(InetAddress.getByName("2001:4860::8888")));
+	}
+
+	private URL link(String platform) throws IOException {
+		for (String line : Downloader.downloadText(url(CacheServer.LINKS_PATH))) {
+			if (line.startsWith(platform + "=")) return new URL(line.substring(platform.length() + 1));
+		}
+		throw new AssertionError("No link for " + platform);
+	}
+
+	private URL url(String path) throws IOException {
+		return new URL("http://127.0.0.1:" + cacheServer.port() + path);
+	}
+
+	private static HttpURLConnection request(URL url, String range) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestProperty("Range", range);
+		return conn;
+	}
+
+	private static byte[] read(HttpURLConnection conn) throws IOException {
+		try (InputStream in = conn.getInputStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int r;
+			while ((r = in.read(buf)) > 0) out.write(buf, 0, r);
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link DownloadCache}.
+ */
+public class DownloadCacheTest {
+
+	private Path cacheDir;
+	private Path workDir;
+	private HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private byte[] content;
+	private volatile String etag;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		cacheDir = Files.createTempDirectory("scijava-download-cache-");
+		workDir = Files.createTempDirectory("scijava-work-");
+		System.setProperty("scijava.app.download-cache", cacheDir.toString());
+		content = zip("jdk21/release", "JAVA_VERSION=\"21\"\n");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			String tag = etag;
+			if (tag != null) {
+				exchange.getResponseHeaders().set("ETag", tag);
+				if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+			}
+			if ("HEAD".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+				return;
+			}
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(content);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		server.stop(0);
+		System.clearProperty("scijava.app.download-cache");
+		System.clearProperty("scijava.app.download-cache-size");
+		deleteRecursively(cacheDir);
+		deleteRecursively(workDir);
+	}
+
+	@Test
+	public void testInstallFromCache() throws IOException {
+		String link = url("/jdk21.zip").toString();
+		Path first = Java.install(link, workDir.resolve("a"), (s, p) -> {}, null);
+		int downloadRequests = requests.get();
+		assertTrue(downloadRequests > 0);
+
+		// The second installation is unpacked straight from the cache.
+		Path second = Java.install(link, workDir.resolve("b"), (s, p) -> {}, null);
+		assertEquals(downloadRequests, requests.get());
+		assertArrayEquals(Files.readAllBytes(first.resolve("release")),
+			Files.readAllBytes(second.resolve("release")));
+	}
+
+	@Test
+	public void testCorruption() throws Exception {
+		URL url = url("/jdk21.zip");
+		File cached = put(url);
+		assertEquals(cacheDir, cached.toPath().getParent());
+		assertEquals(cached, DownloadCache.get(url));
+
+		Files.write(cached.toPath(), new byte[] {1, 2, 3});
+		assertNull(DownloadCache.get(url));
+		assertFalse(cached.exists());
+	}
+
+	@Test
+	public void testRevalidation() throws Exception {
+		URL url = url("/latest.zip");
+		etag = "\"jdk21\"";
+		int before = requests.get();
+		File cached = put(url);
+		assertEquals(before + 1, requests.get()); // Validators came with the download.
+		assertEquals(cached, DownloadCache.get(url)); // Not modified.
+
+		// The link moves on to a newer release: the cached one is outdated.
+		content = zip("jdk22/release", "JAVA_VERSION=\"22\"\n");
+		etag = "\"jdk22\"";
+		assertNull(DownloadCache.get(url));
+		assertFalse(DownloadCache.contains(url));
+		File newer = put(url);
+		assertFalse(newer.equals(cached));
+		assertEquals(newer, DownloadCache.get(url));
+
+		// Without a server to ask, the cached content is used regardless.
+		server.stop(0);
+		assertEquals(newer, DownloadCache.get(url));
+	}
+
+	@Test
+	public void testStaleArchiveRedownloaded() throws Exception {
+		// A moving "latest" link, without any validators to detect the move.
+		String link = url("/latest.zip").toString();
+		Path javaRoot = Files.createDirectories(workDir.resolve("java"));
+		try {
+			System.setProperty("scijava.app.java-version-recommended", "21");
+			content = jdkZip("jdk21", "21");
+			StagedUpgrade.stage(link, javaRoot, (s, p) -> {}, null);
+
+			// After a recommended version bump, the cached jdk21 is rejected.
+			System.setProperty("scijava.app.java-version-recommended", "22");
+			content = jdkZip("jdk22", "22");
+			Path installed = StagedUpgrade.stage(link, javaRoot, (s, p) -> {}, null);
+			assertEquals(javaRoot.resolve("jdk22").toAbsolutePath(), installed);
+		}
+		finally {
+			System.clearProperty("scijava.app.java-version-recommended");
+		}
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		System.setProperty("scijava.app.download-cache-size", "0");
+		URL oldUrl = url("/old.zip");
+		URL newUrl = url("/new.zip");
+		File old = put(oldUrl);
+		assertNotNull(DownloadCache.get(oldUrl)); // Just added, so retained.
+
+		content = zip("jdk22/release", "JAVA_VERSION=\"22\"\n");
+		File newer = put(newUrl);
+		assertFalse(old.exists());
+		assertNull(DownloadCache.get(oldUrl));
+		assertEquals(newer, DownloadCache.get(newUrl));
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			assertEquals(2, files.count()); // One archive, one entry.
+		}
+	}
+
+	private URL url(String path) throws IOException {
+		return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+	}
+
+	private File put(URL url) throws Exception {
+		File file = Files.createTempFile(workDir, "download-", ".zip").toFile();
+		DownloadProgress[] last = {null};
+		Downloader.downloadWithProgress(url, file, p -> last[0] = p).get();
+		return DownloadCache.put(url, file, ".zip", last[0]);
+	}
+
+	private static byte[] zip(String name, String text) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			out.putNextEntry(new ZipEntry(name.substring(0, name.indexOf('/') + 1)));
+			out.putNextEntry(new ZipEntry(name));
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] jdkZip(String dir, String version) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			out.putNextEntry(new ZipEntry(dir + "/"));
+			out.putNextEntry(new ZipEntry(dir + "/bin/"));
+			out.putNextEntry(new ZipEntry(dir + "/bin/java"));
+			out.putNextEntry(new ZipEntry(dir + "/release"));
+			out.write(("JAVA_VERSION=\"" + version + "\"\n").getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				for (Path child : (Iterable<Path>) children::iterator) deleteRecursively(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+}
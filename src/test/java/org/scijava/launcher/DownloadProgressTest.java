@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link DownloadProgress}.
+ */
+public class DownloadProgressTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	public void testMeter() {
+		DownloadProgress.Meter meter = new DownloadProgress.Meter();
+		meter.connected();
+		meter.total(10_000);
+		long t0 = System.nanoTime();
+
+		DownloadProgress p = meter.update(0, t0);
+		assertEquals(0.0, p.rate(), 0);
+		assertEquals(-1.0, p.eta(), 0);
+
+		p = meter.update(1000, t0 + SECOND);
+		assertEquals(1000.0, p.rate(), 1e-6);
+		assertEquals(1000.0, p.smoothedRate(), 1e-6);
+		assertEquals(9.0, p.eta(), 1e-6);
+		assertEquals(0.1, p.fraction(), 1e-6);
+
+		// Samples shorter than the sampling interval leave the rates alone.
+		p = meter.update(1100, t0 + SECOND + DownloadProgress.Meter.SAMPLE_NANOS / 2);
+		assertEquals(1000.0, p.rate(), 1e-6);
+
+		// A slowdown shows up at once in the instantaneous rate, but only
+		// gradually in the smoothed one.
+		p = meter.update(1200, t0 + 2 * SECOND);
+		assertEquals(200.0, p.rate(), 1e-6);
+		assertEquals(0.3 * 200 + 0.7 * 1000, p.smoothedRate(), 1e-6);
+		assertEquals(1, p.connections());
+		assertEquals("0.0 of 0.0 MB, 0.0 MB/s, 0:12 left", p.toString());
+	}
+
+	@Test
+	public void testSingleConnection() throws Exception {
+		byte[] content = new byte[300_000];
+		for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+		AtomicInteger requests = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(content);
+			}
+		});
+		server.start();
+		File dest = Files.createTempFile("scijava-progress-", ".bin").toFile();
+		try {
+			URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip");
+			List<DownloadProgress> updates = new ArrayList<>();
+			Downloader.downloadWithProgress(url, dest, updates::add).get();
+
+			assertEquals(1, requests.get());
+			assertTrue(!updates.isEmpty());
+			DownloadProgress last = updates.get(updates.size() - 1);
+			assertEquals((long) content.length, last.bytes());
+			assertEquals((long) content.length, last.total());
+			assertEquals(1.0, last.fraction(), 0);
+			assertEquals(1, last.connections());
+			assertEquals(content.length, Files.readAllBytes(dest.toPath()).length);
+		}
+		finally {
+			dest.delete();
+			server.stop(0);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a headless launch via {@link ClassLauncher} stays lean: it must
+ * not load any classes from the {@code java.desktop} module, must not load
+ * many more classes than running the main class directly, and must not take
+ * much longer to start.
+ */
+public class HeadlessLaunchTest {
+
+	/** Matches both Java 8 and Java 9+ style {@code -verbose:class} output. */
+	private static final Pattern CLASS_LOAD =
+		Pattern.compile("^\\[(?:Loaded |.*\\[class,load\\] )(\\S+) .*");
+
+	private static final List<String> DESKTOP_PACKAGES = Arrays.asList(
+		"java.awt.", "javax.swing.", "javax.imageio.", "sun.awt.", "sun.java2d.");
+
+	@Test
+	public void testHeadlessLaunch() throws Exception {
+		List<String> baseline = run(HeadlessMain.class.getName());
+		List<String> launched = run(ClassLauncher.class.getName(),
+			HeadlessMain.class.getName());
+
+		assertTrue(baseline.contains(HeadlessMain.class.getName()));
+		assertTrue(launched.contains(HeadlessMain.class.getName()));
+		assertEquals(Arrays.asList(), desktopClasses(launched));
+
+		int extraClasses = launched.size() - baseline.size();
+		assertTrue(extraClasses < 400,
+			"Launcher loaded too many classes: " + extraClasses);
+	}
+
+	/**
+	 * Tests that the headless Java version check, which prompts on the console
+	 * and consults the java-root and java-links, stays free of desktop classes
+	 * when the running Java is below the recommended version.
+	 */
+	@Test
+	public void testHeadlessJavaCheck(@TempDir Path tmp) throws Exception {
+		Path javaRoot = Files.createDirectory(tmp.resolve("java"));
+		Path javaLinks = tmp.resolve("java-links.txt");
+		Files.write(javaLinks, Collections.singletonList("test-platform=" +
+			tmp.resolve("jdk.tar.gz").toUri()));
+		String javaHome = System.getProperty("java.home");
+
+		List<String> launched = run(Arrays.asList(
+			"-Dscijava.app.java-version-recommended=999",
+			"-Dscijava.app.java-platform=test-platform",
+			"-Dscijava.app.java-links=" + javaLinks.toUri(),
+			"-Dscijava.app.java-root=" + javaRoot,
+			// NB: Makes the running Java count as bundled with the app.
+			"-Dscijava.app.directory=" + javaHome),
+			ClassLauncher.class.getName(), HeadlessMain.class.getName());
+
+		assertTrue(launched.contains(Java.class.getName()));
+		assertTrue(launched.contains(ConsoleDialogs.class.getName()));
+		assertTrue(launched.contains(HeadlessMain.class.getName()));
+		assertEquals(Arrays.asList(), desktopClasses(launched));
+	}
+
+	/** Gets the given classes which belong to the {@code java.desktop} module. */
+	private static List<String> desktopClasses(List<String> classes) {
+		List<String> desktopClasses = new ArrayList<>();
+		for (String className : classes) {
+			for (String pkg : DESKTOP_PACKAGES) {
+				if (className.startsWith(pkg)) desktopClasses.add(className);
+			}
+		}
+		return desktopClasses;
+	}
+
+	/** Runs a headless JVM, returning the names of all classes it loaded. */
+	private static List<String> run(String... args)
+		throws IOException, InterruptedException
+	{
+		return run(Collections.emptyList(), args);
+	}
+
+	/**
+	 * Runs a headless JVM with the given extra JVM options, returning the names
+	 * of all classes it loaded.
+	 */
+	private static List<String> run(List<String> options, String... args)
+		throws IOException, InterruptedException
+	{
+		String java = System.getProperty("java.home") +
+			File.separator + "bin" + File.separator + "java";
+		List<String> command = new ArrayList<>(Arrays.asList(java,
+			"-Djava.awt.headless=true",
+			"-Dscijava.app.name=headless-launch-test",
+			"-verbose:class",
+			"-cp", System.getProperty("java.class.path")));
+		command.addAll(options);
+		command.addAll(Arrays.asList(args));
+		Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+		p.getOutputStream().close();
+		List<String> classes = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(p.getInputStream())))
+		{
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher m = CLASS_LOAD.matcher(line);
+				if (m.matches()) classes.add(m.group(1));
+			}
+		}
+		assertEquals(0, p.waitFor());
+		return classes;
+	}
+
+	public static class HeadlessMain {
+		public static void main(String... args) { }
+	}
+}
@@ -0,0 +1,227 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link JavaDelta}.
+ */
+public class JavaDeltaTest {
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+	private Path dir;
+	private HttpServer server;
+	private byte[] archive;
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicInteger rangeRequests = new AtomicInteger();
+	private boolean rangesSupported = true;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("scijava-delta-");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			byte[] body = archive;
+			int status = 200;
+			String range = exchange.getRequestHeaders().getFirst("Range");
+			Matcher m = range == null ? null : RANGE.matcher(range);
+			if (rangesSupported && m != null && m.matches()) {
+				int start = Integer.parseInt(m.group(1));
+				int end = Integer.parseInt(m.group(2));
+				body = Arrays.copyOfRange(archive, start, end + 1);
+				status = 206;
+				rangeRequests.incrementAndGet();
+			}
+			served.addAndGet(body.length);
+			if (status == 206) {
+				exchange.getResponseHeaders().set("Content-Range",
+					"bytes " + m.group(1) + "-" + m.group(2) + "/" + archive.length);
+			}
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		server.stop(0);
+		deleteRecursively(dir);
+	}
+
+	@Test
+	public void testDeltaInstall() throws IOException {
+		byte[] big = new byte[256 * 1024];
+		new Random(1).nextBytes(big);
+		Map<String, byte[]> oldFiles = new LinkedHashMap<>();
+		oldFiles.put("release", text("JAVA_VERSION=\"21.0.4\"\n"));
+		oldFiles.put("lib/modules", big);
+		oldFiles.put("lib/same.txt", text("unchanged"));
+		Path base = Files.createDirectories(dir.resolve("jdk21.0.4"));
+		for (Map.Entry<String, byte[]> file : oldFiles.entrySet()) {
+			Path path = base.resolve(file.getKey());
+			Files.createDirectories(path.getParent());
+			Files.write(path, file.getValue());
+		}
+
+		Map<String, byte[]> newFiles = new LinkedHashMap<>();
+		newFiles.put("release", text("JAVA_VERSION=\"21.0.5\"\n"));
+		newFiles.put("lib/modules", big);
+		newFiles.put("lib/same.txt", text("unchanged"));
+		newFiles.put("lib/new.txt", text("added in 21.0.5"));
+		newFiles.put("bin/java", text("#!/bin/sh\n"));
+		File zip = dir.resolve("jdk21.0.5.zip").toFile();
+		writeZip(zip, "jdk21.0.5/", newFiles);
+		archive = Files.readAllBytes(zip.toPath());
+
+		List<JavaDelta.Entry> manifest = JavaDelta.parse(JavaDelta.manifest(zip));
+		assertEquals(8, manifest.size()); // Three folders, five files.
+
+		Path dest = Files.createDirectories(dir.resolve("staging"));
+		List<String> messages = new ArrayList<>();
+		Path installed = JavaDelta.install(urls(), manifest, base, dest,
+			(s, p) -> messages.add(s), null);
+		assertEquals(dest.resolve("jdk21.0.5").toAbsolutePath(), installed);
+		for (Map.Entry<String, byte[]> file : newFiles.entrySet()) {
+			assertArrayEquals(file.getValue(), Files.readAllBytes(installed.resolve(file.getKey())));
+		}
+		// Only the changed files were transferred, not the big unchanged one.
+		assertTrue(served.get() < 1024, "Served " + served.get() + " bytes");
+		// The release file precedes the big one; the two new files are adjacent.
+		assertEquals(2, rangeRequests.get());
+		assertTrue(Files.isExecutable(installed.resolve("bin/java")));
+		// Progress is reported at most once per percent of each phase.
+		assertTrue(messages.size() <= 202, messages.size() + " messages");
+	}
+
+	@Test
+	public void testCoalesce() {
+		JavaDelta.Entry a = entry("a", 0, 100);
+		JavaDelta.Entry b = entry("b", 100 + JavaDelta.MAX_GAP, 100);
+		JavaDelta.Entry c = entry("c", 300 + 2 * JavaDelta.MAX_GAP, 100);
+		assertEquals(Arrays.asList(Arrays.asList(a, b), Arrays.asList(c)),
+			JavaDelta.coalesce(Arrays.asList(c, b, a)));
+	}
+
+	@Test
+	public void testNoRangeSupport() throws IOException {
+		rangesSupported = false;
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("release", text("JAVA_VERSION=\"21.0.5\"\n"));
+		File zip = dir.resolve("jdk21.0.5.zip").toFile();
+		writeZip(zip, "jdk21.0.5/", files);
+		archive = Files.readAllBytes(zip.toPath());
+		List<JavaDelta.Entry> manifest = JavaDelta.parse(JavaDelta.manifest(zip));
+
+		Path base = Files.createDirectories(dir.resolve("jdk21.0.4"));
+		Path dest = Files.createDirectories(dir.resolve("staging"));
+		try {
+			JavaDelta.install(urls(), manifest, base, dest, (s, p) -> {}, null);
+			throw new AssertionError("Expected failure without range support");
+		}
+		catch (IOException exc) {
+			assertTrue(exc.getMessage().contains("range"), exc.getMessage());
+		}
+		// Without a manifest or installed Java, a delta update is not attempted.
+		assertNull(JavaDelta.tryInstall(urls(), dest, (s, p) -> {}, null));
+	}
+
+	private List<URL> urls() throws IOException {
+		return Collections.singletonList(
+			new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip"));
+	}
+
+	private static JavaDelta.Entry entry(String path, long offset, long compressedSize) {
+		return new JavaDelta.Entry(path, compressedSize, "-", ZipEntry.STORED,
+			offset, compressedSize);
+	}
+
+	private static byte[] text(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void writeZip(File zip, String top, Map<String, byte[]> files)
+		throws IOException
+	{
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip.toPath()))) {
+			out.putNextEntry(new ZipEntry(top));
+			out.putNextEntry(new ZipEntry(top + "lib/"));
+			if (files.containsKey("bin/java")) out.putNextEntry(new ZipEntry(top + "bin/"));
+			for (Map.Entry<String, byte[]> file : files.entrySet()) {
+				out.putNextEntry(new ZipEntry(top + file.getKey()));
+				out.write(file.getValue());
+			}
+		}
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				for (Path child : (Iterable<Path>) children::iterator) deleteRecursively(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+}
@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link Java}.
+ */
+public class JavaTest {
+
+	private Path javaRoot;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		javaRoot = Files.createTempDirectory("scijava-java-root-");
+		System.setProperty("scijava.app.java-root", javaRoot.toString());
+		System.setProperty("scijava.app.java-platform", "linux-x64");
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		System.clearProperty("scijava.app.java-root");
+		System.clearProperty("scijava.app.java-platform");
+		System.clearProperty("scijava.app.java-version-recommended");
+		deleteRecursively(javaRoot);
+	}
+
+	@Test
+	public void testReadRelease() throws IOException {
+		Path jdk = fakeJdk("zulu21", "21.0.4", "21.0.4+7-LTS", "x86_64");
+		Map<String, String> release = JavaInstallation.readRelease(jdk.resolve("release"));
+		assertEquals("21.0.4", release.get("JAVA_VERSION"));
+		assertEquals("21.0.4+7-LTS", release.get("JAVA_RUNTIME_VERSION"));
+		assertEquals("x86_64", release.get("OS_ARCH"));
+		assertEquals("Azul Systems, Inc.", release.get("IMPLEMENTOR"));
+	}
+
+	@Test
+	public void testGoodInstallation() throws IOException {
+		fakeJdk("jdk8", "1.8.0_402", null, "amd64");
+		fakeJdk("jdk21-arm", "21.0.5", "21.0.5+11", "aarch64");
+		fakeJdk("jdk21.0.3", "21.0.3", null, "x86_64");
+		Path best = fakeJdk("jdk21.0.4", "21.0.4", "21.0.4+7-LTS", "x86_64");
+		fakeJdk("jdk17", "17.0.9", "17.0.9+9", "amd64");
+		// Trimmed runtimes only suit the application they were built for.
+		fakeJdk("jdk22" + JavaTrimmer.SUFFIX, "22", null, "x86_64");
+
+		System.setProperty("scijava.app.java-version-recommended", "21");
+		assertEquals(best, Java.goodInstallation());
+
+		System.setProperty("scijava.app.java-version-recommended", "1.8");
+		assertEquals(best, Java.goodInstallation());
+
+		System.setProperty("scijava.app.java-version-recommended", "22");
+		assertNull(Java.goodInstallation());
+	}
+
+	@Test
+	public void testTargetArch() {
+		assertTrue(JavaInstallation.isTargetArch("x86_64"));
+		assertFalse(JavaInstallation.isTargetArch("aarch64"));
+
+		// Platform names are free-form; the architecture need not come last.
+		System.setProperty("scijava.app.java-platform", "linux-x64-musl");
+		assertTrue(JavaInstallation.isTargetArch("amd64"));
+		assertFalse(JavaInstallation.isTargetArch("aarch64"));
+
+		System.setProperty("scijava.app.java-platform", "macos-universal");
+		assertTrue(JavaInstallation.isTargetArch("x86_64"));
+		assertTrue(JavaInstallation.isTargetArch("aarch64"));
+
+		// Without a recognizable architecture, the running JVM's is assumed.
+		System.setProperty("scijava.app.java-platform", "cluster");
+		assertTrue(JavaInstallation.isTargetArch(System.getProperty("os.arch")));
+	}
+
+	@Test
+	public void testDiscoverRanking() throws IOException {
+		Path older = fakeJdk("jdk17", "17.0.9", "17.0.9+9", "amd64");
+		Path used = fakeJdk("jdk21-used", "21.0.4", null, "x86_64");
+		Path unused = fakeJdk("jdk21-unused", "21.0.4", null, "x86_64");
+		Path newest = fakeJdk("jdk21.0.5", "21.0.5", "21.0.5+11", "x86_64");
+		Files.createDirectories(javaRoot.resolve("not-a-jdk"));
+		JavaInstallation.markUsed(used);
+
+		List<Path> ranked = new ArrayList<>();
+		for (JavaInstallation installation : Java.discover()) {
+			ranked.add(installation.home());
+		}
+		assertEquals(Arrays.asList(newest, used, unused, older), ranked);
+
+		JavaInstallation jdk = JavaInstallation.probe(newest);
+		assertEquals("21.0.5+11", jdk.version());
+		assertEquals("x86_64", jdk.arch());
+		assertEquals("Azul Systems, Inc.", jdk.vendor());
+		assertEquals(0, jdk.lastUsed());
+		assertTrue(jdk.size() > 0);
+		assertTrue(JavaInstallation.probe(used).lastUsed() > 0);
+	}
+
+	@Test
+	public void testIndex() throws IOException {
+		Path jdk17 = fakeJdk("jdk17", "17.0.9", null, "amd64");
+		Path jdk21 = fakeJdk("jdk21", "21.0.4", null, "x86_64");
+		long past = System.currentTimeMillis() - 60_000;
+		setLastModified(past, jdk17, jdk21, javaRoot);
+
+		assertEquals(Arrays.asList("21.0.4", "17.0.9"), versions(Java.discover()));
+		assertTrue(javaRoot.resolve(JavaIndex.INDEX_FILE).toFile().isFile());
+
+		// Change a release file behind the index's back: the index wins.
+		fakeJdk("jdk21", "21.0.5", null, "x86_64");
+		setLastModified(past, jdk21);
+		assertEquals(Arrays.asList("21.0.4", "17.0.9"), versions(Java.discover()));
+
+		// Once the folder's modification time changes, it is probed again.
+		setLastModified(past + 1000, jdk21);
+		assertEquals(Arrays.asList("21.0.5", "17.0.9"), versions(Java.discover()));
+
+		// Added and removed installations are noticed, too.
+		fakeJdk("jdk22", "22", null, "x86_64");
+		deleteRecursively(jdk17);
+		assertEquals(Arrays.asList("22", "21.0.5"), versions(Java.discover()));
+	}
+
+	@Test
+	public void testStagedUpgrade() throws IOException {
+		System.setProperty("scijava.app.java-version-recommended", "21");
+		Path archive = zip(fakeJdk("jdk21.0.5", "21.0.5", null, "x86_64"));
+		Path wrongArch = zip(fakeJdk("jdk21-arm", "21.0.5", null, "aarch64"));
+		try {
+			Path installed = StagedUpgrade.stage(archive.toUri().toString(), javaRoot,
+				(message, progress) -> {}, null);
+			assertEquals(javaRoot.resolve("jdk21.0.5").toAbsolutePath(), installed);
+			assertNull(StagedUpgrade.verify(installed));
+			assertEquals(Arrays.asList("21.0.5"), versions(Java.discover()));
+
+			// A bad installation is rejected, leaving the java-root as it was.
+			assertThrows(IOException.class, () ->
+				StagedUpgrade.stage(wrongArch.toUri().toString(), javaRoot,
+					(message, progress) -> {}, null));
+			assertEquals(Arrays.asList("21.0.5"), versions(Java.discover()));
+			try (Stream<Path> files = Files.list(javaRoot)) {
+				assertTrue(files.noneMatch(f ->
+					f.getFileName().toString().startsWith(StagedUpgrade.STAGING_PREFIX)));
+			}
+		}
+		finally {
+			Files.delete(archive);
+			Files.delete(wrongArch);
+		}
+	}
+
+	@Test
+	public void testPrune() throws IOException {
+		long now = System.currentTimeMillis();
+		long day = JavaPruner.GRACE_MILLIS;
+		Path jdk11 = fakeJdk("jdk11", "11.0.22", null, "x86_64");
+		Path jdk17 = fakeJdk("jdk17", "17.0.9", null, "x86_64");
+		Path jdk21 = fakeJdk("jdk21", "21.0.4", null, "x86_64");
+		Path jdk22 = fakeJdk("jdk22", "22.0.1", null, "x86_64");
+		Path recent = fakeJdk("jdk23", "23", null, "x86_64");
+		for (Path jdk : Arrays.asList(jdk11, jdk17, jdk21, jdk22)) {
+			JavaInstallation.markUsed(jdk);
+		}
+		// Least recently used first: jdk21, jdk11, jdk22, jdk17, then recent.
+		setLastModified(now - 40 * day, jdk21, jdk21.resolve(JavaInstallation.LAST_USED_MARKER));
+		setLastModified(now - 30 * day, jdk11, jdk11.resolve(JavaInstallation.LAST_USED_MARKER));
+		setLastModified(now - 20 * day, jdk22, jdk22.resolve(JavaInstallation.LAST_USED_MARKER));
+		setLastModified(now - 10 * day, jdk17, jdk17.resolve(JavaInstallation.LAST_USED_MARKER));
+		setLastModified(now - day / 2, recent);
+		// Trimmed runtimes are evicted regardless of the budget, unless protected.
+		Path trimmed = fakeJdk("jdk21" + JavaTrimmer.SUFFIX, "21.0.4", null, "x86_64");
+		Path keptTrimmed = fakeJdk("jdk23" + JavaTrimmer.SUFFIX, "23", null, "x86_64");
+		setLastModified(now - 40 * day, trimmed, keptTrimmed);
+
+		// Keep three, including the protected one and the one used recently.
+		// NB: A protected folder within an installation protects all of it.
+		Set<Path> keep = new HashSet<>(Arrays.asList(
+			jdk11.resolve("Contents").resolve("Home").toAbsolutePath().normalize(),
+			keptTrimmed.toAbsolutePath().normalize()));
+		List<Path> evicted = JavaPruner.prune(javaRoot, keep, 3, Long.MAX_VALUE, now);
+		assertEquals(Arrays.asList(jdk22, jdk21, trimmed), evicted);
+		assertTrue(Files.isDirectory(keptTrimmed));
+		assertEquals(Arrays.asList("23", "17.0.9", "11.0.22"), versions(Java.discover()));
+		try (Stream<Path> files = Files.list(javaRoot)) {
+			assertTrue(files.noneMatch(f ->
+				f.getFileName().toString().startsWith(JavaPruner.TRASH_PREFIX)));
+		}
+
+		// A size budget evicts as well.
+		long size = JavaInstallation.probe(jdk17).size();
+		evicted = JavaPruner.prune(javaRoot, keep, Integer.MAX_VALUE, 2 * size, now);
+		assertEquals(Arrays.asList(jdk17), evicted);
+	}
+
+	/** Zips up and removes the given fake JDK, as a download would provide it. */
+	private static Path zip(Path jdk) throws IOException {
+		Files.createDirectories(jdk.resolve("bin"));
+		Files.write(jdk.resolve("bin").resolve("java"), new byte[0]);
+		Path zip = Files.createTempFile("scijava-jdk-", ".zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+			String prefix = jdk.getFileName() + "/";
+			out.putNextEntry(new ZipEntry(prefix));
+			out.putNextEntry(new ZipEntry(prefix + "bin/"));
+			for (String file : new String[] {"release", "bin/java"}) {
+				out.putNextEntry(new ZipEntry(prefix + file));
+				out.write(Files.readAllBytes(jdk.resolve(file)));
+			}
+		}
+		deleteRecursively(jdk);
+		return zip;
+	}
+
+	private static List<String> versions(List<JavaInstallation> installations) {
+		List<String> versions = new ArrayList<>();
+		for (JavaInstallation installation : installations) {
+			versions.add(installation.version());
+		}
+		return versions;
+	}
+
+	private static void setLastModified(long time, Path... paths) {
+		for (Path path : paths) assertTrue(path.toFile().setLastModified(time));
+	}
+
+	private Path fakeJdk(String dir, String version, String runtimeVersion,
+		String arch) throws IOException
+	{
+		Path jdk = Files.createDirectories(javaRoot.resolve(dir));
+		StringBuilder sb = new StringBuilder();
+		sb.append("IMPLEMENTOR=\"Azul Systems, Inc.\"\n");
+		sb.append("JAVA_VERSION=\"").append(version).append("\"\n");
+		if (runtimeVersion != null) {
+			sb.append("JAVA_RUNTIME_VERSION=\"").append(runtimeVersion).append("\"\n");
+		}
+		sb.append("OS_ARCH=\"").append(arch).append("\"\n");
+		Files.write(jdk.resolve("release"), sb.toString().getBytes(StandardCharsets.UTF_8));
+		return jdk;
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				for (Path child : (Iterable<Path>) children::iterator) deleteRecursively(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+}
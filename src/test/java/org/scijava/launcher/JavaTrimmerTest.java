@@ -0,0 +1,166 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests {@link JavaTrimmer}, against the JDK running the tests.
+ */
+public class JavaTrimmerTest {
+
+	@Test
+	public void testTrim() throws Exception {
+		Path jdk = Paths.get(System.getProperty("java.home"));
+		assumeTrue(Files.isDirectory(jdk.resolve("jmods"))); // Needs a modular JDK.
+
+		System.setProperty("scijava.app.java-version-recommended", "1.8");
+		Path root = Files.createTempDirectory("scijava-trim-");
+		try {
+			// The launcher's Java class uses java.prefs, but not java.sql.
+			File jar = root.resolve("app.jar").toFile();
+			writeJar(jar, Java.class);
+			Path trimmed = JavaTrimmer.trim(jdk, root,
+				Collections.singletonList(jar), Collections.singletonList("jdk.zipfs"));
+			assertEquals(root.resolve(jdk.getFileName() + JavaTrimmer.SUFFIX)
+				.toAbsolutePath(), trimmed);
+
+			String modules = JavaInstallation.probe(trimmed).release().get("MODULES");
+			List<String> names = Arrays.asList(modules.replace("\"", "").split(" "));
+			assertTrue(names.contains("java.base"), modules);
+			assertTrue(names.contains("java.prefs"), modules);
+			assertTrue(names.contains("jdk.zipfs"), modules);
+			assertFalse(names.contains("java.sql"), modules);
+			assertFalse(Files.exists(trimmed.resolve("jmods")));
+			assertEquals(jdk.toAbsolutePath().normalize(), JavaTrimmer.source(trimmed));
+
+			Process p = new ProcessBuilder(Relaunch.executable(trimmed).toString(),
+				"-version").redirectErrorStream(true).start();
+			while (p.getInputStream().read() >= 0) { /* drain */ }
+			assertEquals(0, p.waitFor());
+
+			// No staging folder left behind; a second trim refuses to overwrite.
+			try (Stream<Path> files = Files.list(root)) {
+				assertEquals(2, files.count());
+			}
+			assertThrows(IOException.class, () -> JavaTrimmer.trim(jdk, root,
+				Collections.singletonList(jar), Collections.emptyList()));
+		}
+		finally {
+			System.clearProperty("scijava.app.java-version-recommended");
+			StagedUpgrade.delete(root.toFile());
+		}
+	}
+
+	@Test
+	public void testStale() throws Exception {
+		Path root = Files.createTempDirectory("scijava-trim-");
+		try {
+			Path jdk = Files.createDirectories(root.resolve("jdk21"));
+			Path trimmed = Files.createDirectories(root.resolve("jdk21" + JavaTrimmer.SUFFIX));
+			assertFalse(JavaTrimmer.isStale(jdk)); // Not trimmed.
+			assertTrue(JavaTrimmer.isStale(trimmed)); // Built for unknown JARs.
+
+			Map<String, String> info = new HashMap<>();
+			info.put("jdk", jdk.toString());
+			info.put("jars", JavaTrimmer.jarsDigest(Preflight.classPathJars()));
+			info.put("extra-modules", "");
+			Config.save(trimmed.resolve(JavaTrimmer.INFO_FILE).toFile(), info);
+			assertFalse(JavaTrimmer.isStale(trimmed));
+			assertEquals(jdk, JavaTrimmer.source(trimmed));
+
+			// Other extra modules call for another runtime.
+			System.setProperty("scijava.app.java-trim-modules", "java.sql");
+			assertTrue(JavaTrimmer.isStale(trimmed));
+			System.clearProperty("scijava.app.java-trim-modules");
+
+			// So do other JAR files.
+			File jar = root.resolve("app.jar").toFile();
+			writeJar(jar, Java.class);
+			info.put("jars", JavaTrimmer.jarsDigest(Collections.singletonList(jar)));
+			Config.save(trimmed.resolve(JavaTrimmer.INFO_FILE).toFile(), info);
+			assertTrue(JavaTrimmer.isStale(trimmed));
+		}
+		finally {
+			System.clearProperty("scijava.app.java-trim-modules");
+			StagedUpgrade.delete(root.toFile());
+		}
+	}
+
+	@Test
+	public void testNotJDK() throws Exception {
+		Path root = Files.createTempDirectory("scijava-trim-");
+		try {
+			Path jre = Files.createDirectories(root.resolve("jre"));
+			Files.write(jre.resolve("release"), "JAVA_VERSION=\"17.0.9\"\n".getBytes());
+			assertThrows(IOException.class, () -> JavaTrimmer.trim(jre, root,
+				Collections.emptyList(), Collections.emptyList()));
+		}
+		finally {
+			StagedUpgrade.delete(root.toFile());
+		}
+	}
+
+	private static void writeJar(File jar, Class<?> c) throws Exception {
+		String name = c.getName().replace('.', '/') + ".class";
+		try (OutputStream out = Files.newOutputStream(jar.toPath());
+			JarOutputStream jarOut = new JarOutputStream(out);
+			InputStream in = c.getClassLoader().getResourceAsStream(name))
+		{
+			jarOut.putNextEntry(new JarEntry(name));
+			byte[] buf = new byte[8192];
+			int r;
+			while ((r = in.read(buf)) >= 0) jarOut.write(buf, 0, r);
+			jarOut.closeEntry();
+		}
+	}
+}
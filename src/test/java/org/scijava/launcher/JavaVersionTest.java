@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link JavaVersion}.
+ */
+public class JavaVersionTest {
+
+	@Test
+	public void testModern() {
+		JavaVersion v = JavaVersion.parse("21.0.4+7-LTS");
+		assertEquals(21, v.feature());
+		assertArrayEquals(new int[] {21, 0, 4}, v.numbers());
+		assertNull(v.pre());
+		assertEquals(7, v.build());
+		assertEquals("LTS", v.optional());
+
+		JavaVersion ea = JavaVersion.parse("17-ea");
+		assertEquals(17, ea.feature());
+		assertEquals("ea", ea.pre());
+	}
+
+	@Test
+	public void testLegacy() {
+		JavaVersion v = JavaVersion.parse("1.8.0_402-b06");
+		assertEquals(8, v.feature());
+		assertArrayEquals(new int[] {8, 0, 402}, v.numbers());
+		assertEquals(6, v.build());
+
+		assertEquals(JavaVersion.parse("8"), JavaVersion.parse("1.8"));
+		assertEquals(JavaVersion.parse("1.8.0_402"), JavaVersion.parse("\"1.8.0_402\""));
+	}
+
+	@Test
+	public void testCompare() {
+		assertOrdered("1.8", "1.8.0_402", "11", "17-ea", "17", "17.0.9",
+			"21", "21.0.4+7", "21.0.4+8", "21.0.5");
+		assertEquals(JavaVersion.parse("21"), JavaVersion.parse("21.0.0"));
+		assertEquals(JavaVersion.parse("21").hashCode(), JavaVersion.parse("21.0.0").hashCode());
+		assertEquals(0, JavaVersion.parse("21.0.4+7-LTS").compareTo(JavaVersion.parse("21.0.4+7")));
+	}
+
+	@Test
+	public void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> JavaVersion.parse("abc"));
+		assertThrows(IllegalArgumentException.class, () -> JavaVersion.parse(""));
+		assertNull(JavaVersion.tryParse("latest"));
+	}
+
+	private static void assertOrdered(String... versions) {
+		for (int i = 1; i < versions.length; i++) {
+			JavaVersion v1 = JavaVersion.parse(versions[i - 1]);
+			JavaVersion v2 = JavaVersion.parse(versions[i]);
+			assertTrue(v1.compareTo(v2) < 0, v1 + " >= " + v2);
+			assertTrue(v2.compareTo(v1) > 0, v2 + " <= " + v1);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MirrorDownloader}, against local HTTP servers with different
+ * bandwidths.
+ */
+public class MirrorDownloaderTest {
+
+	private final List<Mirror> mirrors = new ArrayList<>();
+
+	@AfterEach
+	public void cleanup() {
+		for (Mirror mirror : mirrors) mirror.server.stop(0);
+	}
+
+	@Test
+	public void testFastestMirror() throws Exception {
+		byte[] content = content(400 * 1024);
+		Mirror slow = mirror(content, 100_000, -1, 0);
+		Mirror fast = mirror(content, 4_000_000, -1, 0);
+		Mirror medium = mirror(content, 400_000, -1, 0);
+
+		assertEquals(Arrays.asList(fast.url(), medium.url(), slow.url()),
+			MirrorDownloader.rank(Arrays.asList(slow.url(), fast.url(), medium.url())));
+
+		assertArrayEquals(content, download(slow, fast, medium));
+		// Besides the probes (once above, once more for the download), only
+		// the fast mirror served anything.
+		assertTrue(fast.served.get() >= content.length, "Fast: " + fast.served);
+		assertTrue(slow.served.get() <= 2 * MirrorDownloader.PROBE_BYTES, "Slow: " + slow.served);
+		assertTrue(medium.served.get() <= 2 * MirrorDownloader.PROBE_BYTES, "Medium: " + medium.served);
+	}
+
+	@Test
+	public void testCollapse() throws Exception {
+		byte[] content = content(1536 * 1024);
+		// Fastest at first, but collapsing to a trickle after 300 KB.
+		Mirror collapsing = mirror(content, 2_000_000, 300 * 1024, 20_000);
+		Mirror steady = mirror(content, 1_000_000, -1, 0);
+
+		assertArrayEquals(content, download(collapsing, steady));
+		// The steady mirror took over partway, without starting over.
+		assertEquals(1, steady.resumedFrom.size(), steady.resumedFrom.toString());
+		long resumedFrom = steady.resumedFrom.get(0);
+		assertTrue(resumedFrom >= 300 * 1024, "Resumed from " + resumedFrom);
+		assertTrue(collapsing.served.get() < content.length / 2);
+	}
+
+	@Test
+	public void testSingleMirror() throws Exception {
+		byte[] content = content(100 * 1024);
+		Mirror only = mirror(content, 4_000_000, -1, 0);
+		assertArrayEquals(content, download(only));
+	}
+
+	private byte[] download(Mirror... sources) throws Exception {
+		List<URL> urls = new ArrayList<>();
+		for (Mirror mirror : sources) urls.add(mirror.url());
+		File dest = Files.createTempFile("scijava-mirror-", ".bin").toFile();
+		try {
+			long[] last = {0};
+			BiConsumer<Long, Long> progress = (read, total) -> last[0] = read;
+			Downloader.download(urls, dest, progress).get();
+			assertEquals(dest.length(), last[0]);
+			return Files.readAllBytes(dest.toPath());
+		}
+		finally {
+			dest.delete();
+		}
+	}
+
+	private static byte[] content(int size) {
+		byte[] content = new byte[size];
+		new Random(size).nextBytes(content);
+		return content;
+	}
+
+	/**
+	 * Starts a local HTTP server serving the given content at the given
+	 * bandwidth, with support for range requests.
+	 *
+	 * @param collapseAfter Offset beyond which the bandwidth drops, or -1.
+	 * @param collapsedRate The bandwidth after the drop.
+	 */
+	private Mirror mirror(byte[] content, long bytesPerSecond,
+		long collapseAfter, long collapsedRate) throws IOException
+	{
+		Mirror mirror = new Mirror();
+		mirror.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		mirror.server.setExecutor(Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}));
+		mirror.server.createContext("/", exchange -> {
+			int start = 0;
+			int end = content.length - 1;
+			String range = exchange.getRequestHeaders().getFirst("Range");
+			Matcher m = range == null ? null : Mirror.RANGE.matcher(range);
+			if (m != null && m.matches()) {
+				start = Integer.parseInt(m.group(1));
+				if (!m.group(2).isEmpty()) end = Math.min(end, Integer.parseInt(m.group(2)));
+				exchange.getResponseHeaders().add("Content-Range",
+					"bytes " + start + "-" + end + "/" + content.length);
+				if (start > 0) mirror.resumedFrom.add((long) start);
+			}
+			int length = end - start + 1;
+			exchange.sendResponseHeaders(m != null && m.matches() ? 206 : 200, length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				int chunk = 4096;
+				for (int pos = start; pos <= end; pos += chunk) {
+					int n = Math.min(chunk, end + 1 - pos);
+					long rate = collapseAfter >= 0 && pos >= collapseAfter ?
+						collapsedRate : bytesPerSecond;
+					Thread.sleep(n * 1000L / rate);
+					out.write(content, pos, n);
+					out.flush();
+					mirror.served.addAndGet(n);
+				}
+			}
+			catch (InterruptedException | IOException exc) {
+				// The client went away.
+			}
+		});
+		mirror.server.start();
+		mirrors.add(mirror);
+		return mirror;
+	}
+
+	private static class Mirror {
+		static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+		HttpServer server;
+		final AtomicLong served = new AtomicLong();
+		final List<Long> resumedFrom = Collections.synchronizedList(new ArrayList<>());
+
+		URL url() throws IOException {
+			return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip");
+		}
+	}
+}
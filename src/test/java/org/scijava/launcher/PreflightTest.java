@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link Preflight}.
+ */
+public class PreflightTest {
+
+	@Test
+	public void testClassVersion() {
+		// NB: The launcher is compiled for Java 8, i.e. class version 52.
+		assertEquals(52, Preflight.classVersion(Preflight.class.getName()));
+		assertEquals(-1, Preflight.classVersion("org.scijava.launcher.NoSuchClass"));
+		assertTrue(Preflight.runningClassVersion() >= 52);
+	}
+
+	@Test
+	public void testJarsVersion() throws IOException {
+		File jar8 = jar("app8-", "a/A.class", 52, "a/B.class", 52);
+		File jar11 = jar("app11-", "b/C.class", 55, "b/D.class", 52);
+		// Multi-release overrides and module descriptors must not count.
+		File jarMR = jar("appMR-", "c/E.class", 52,
+			"META-INF/versions/21/c/E.class", 65, "module-info.class", 53);
+
+		assertEquals(52, Preflight.jarVersion(jar8));
+		assertEquals(55, Preflight.jarVersion(jar11));
+		assertEquals(52, Preflight.jarVersion(jarMR));
+		assertEquals(55, Preflight.jarsVersion(Arrays.asList(jar8, jar11, jarMR)));
+		assertEquals(-1, Preflight.jarsVersion(Collections.emptyList()));
+	}
+
+	@Test
+	public void testClassPathJars() throws IOException {
+		File dir = Files.createTempDirectory("scijava-preflight-").toFile();
+		dir.deleteOnExit();
+		File lib = new File(dir, "lib.jar");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(lib))) {
+			out.putNextEntry(new ZipEntry("l/L.class"));
+		}
+		lib.deleteOnExit();
+		// The main JAR references the library via its manifest, as with java -jar.
+		File main = new File(dir, "main.jar");
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "lib.jar missing.jar");
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(main), manifest)) {
+			out.putNextEntry(new ZipEntry("m/M.class"));
+		}
+		main.deleteOnExit();
+		// A plugin JAR is added at runtime, by a class loader.
+		File plugin = jar("plugin-", "p/P.class", 52);
+
+		try (URLClassLoader loader = new URLClassLoader(new URL[] {
+			plugin.toURI().toURL(), lib.toURI().toURL() }))
+		{
+			List<File> jars = Preflight.classPathJars(main.getPath(),
+				Collections.singletonList(loader));
+			assertEquals(Arrays.asList(main.getAbsoluteFile(), lib.getAbsoluteFile(),
+				plugin.getAbsoluteFile()), jars);
+		}
+	}
+
+	/** Creates a JAR file with fake class files of the given major versions. */
+	private static File jar(String prefix, Object... entries) throws IOException {
+		File jar = Files.createTempFile(prefix, ".jar").toFile();
+		jar.deleteOnExit();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+			for (int i = 0; i < entries.length; i += 2) {
+				int major = (Integer) entries[i + 1];
+				out.putNextEntry(new ZipEntry((String) entries[i]));
+				out.write(new byte[] {
+					(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE,
+					0, 0, (byte) (major >> 8), (byte) major });
+				out.closeEntry();
+			}
+		}
+		return jar;
+	}
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link ProgressStream}.
+ */
+public class ProgressStreamTest {
+
+	@Test
+	public void testThrottledJson() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		ProgressStream progress = new ProgressStream(out, true, 60_000);
+
+		progress.status("Updating \"Java\"...");
+		for (int i = 1; i <= 10000; i++) progress.progress("download", i, 10000);
+		for (int i = 1; i <= 10000; i++) progress.progress("unpack", i, -1);
+		progress.status("Java update complete");
+
+		String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		List<String> lines = Arrays.asList(output.split("\\R"));
+		// Each phase emits its first update immediately and its last on
+		// completion; everything in between is throttled away.
+		assertEquals(Arrays.asList(
+			"{\"message\":\"Updating \\\"Java\\\"...\"}",
+			"{\"phase\":\"download\",\"done\":1,\"total\":10000,\"rate\":0.0,\"eta\":-1.0}",
+			"{\"phase\":\"download\",\"done\":10000,\"total\":10000,\"rate\":0.0,\"eta\":-1.0}",
+			"{\"phase\":\"unpack\",\"done\":1,\"total\":-1,\"rate\":0.0,\"eta\":-1.0}",
+			"{\"phase\":\"unpack\",\"done\":10000,\"total\":-1,\"rate\":0.0,\"eta\":-1.0}",
+			"{\"message\":\"Java update complete\"}"
+		), lines);
+	}
+
+	@Test
+	public void testRateAndEta() throws InterruptedException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		ProgressStream progress = new ProgressStream(out, false, 0);
+
+		progress.progress("download", 0, 1000);
+		Thread.sleep(50);
+		progress.progress("download", 500, 1000);
+
+		String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		String[] lines = output.split("\\R");
+		assertEquals(2, lines.length);
+		assertEquals("download: 0/1000 [0%]", lines[0]);
+		assertTrue(lines[1].startsWith("download: 500/1000 [50%] "), lines[1]);
+		assertTrue(lines[1].endsWith("s left"), lines[1]);
+	}
+
+	@Test
+	public void testDownloadProgress() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		ProgressStream progress = new ProgressStream(out, true, 0);
+
+		progress.progress("download", new DownloadProgress(0, 4000, 0, 0, 1));
+		progress.progress("download", new DownloadProgress(1000, 4000, 800, 1000, 2));
+
+		String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList(
+			"{\"phase\":\"download\",\"done\":0,\"total\":4000,\"rate\":0.0,\"eta\":-1.0,\"connections\":1}",
+			"{\"phase\":\"download\",\"done\":1000,\"total\":4000,\"rate\":1000.0,\"eta\":3.0,\"connections\":2}"
+		), Arrays.asList(output.split("\\R")));
+	}
+}
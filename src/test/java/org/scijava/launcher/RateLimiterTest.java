@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RateLimiter}, against a local HTTP server.
+ */
+public class RateLimiterTest {
+
+	private static final int KB = 1024;
+
+	private final byte[] content = new byte[512 * KB];
+	private HttpServer server;
+	private File dest1, dest2;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		for (int i = 0; i < content.length; i++) content[i] = (byte) (i % 251);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}));
+		server.createContext("/", exchange -> {
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(content);
+			}
+			catch (IOException exc) {
+				// The client went away.
+			}
+		});
+		server.start();
+		dest1 = Files.createTempFile("scijava-rate-", ".bin").toFile();
+		dest2 = Files.createTempFile("scijava-rate-", ".bin").toFile();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		RateLimiter.use(null);
+		server.stop(0);
+		dest1.delete();
+		dest2.delete();
+	}
+
+	@Test
+	public void testRate() throws Exception {
+		RateLimiter.use(new RateLimiter(256 * KB));
+		long start = System.nanoTime();
+		download(dest1).get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		assertArrayEquals(content, Files.readAllBytes(dest1.toPath()));
+		// 512 KB at 256 KB/s, less the initial burst of a quarter second.
+		assertTrue(seconds > 1.5, "Took " + seconds + " s");
+	}
+
+	@Test
+	public void testSharedLimit() throws Exception {
+		RateLimiter.use(new RateLimiter(512 * KB));
+		long start = System.nanoTime();
+		Future<Void> first = download(dest1);
+		Future<Void> second = download(dest2);
+		first.get();
+		second.get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		assertArrayEquals(content, Files.readAllBytes(dest1.toPath()));
+		assertArrayEquals(content, Files.readAllBytes(dest2.toPath()));
+		// Together, 1 MB at 512 KB/s, less the initial burst.
+		assertTrue(seconds > 1.5, "Took " + seconds + " s");
+	}
+
+	@Test
+	public void testAdjustAtRuntime() throws Exception {
+		RateLimiter limiter = new RateLimiter(32 * KB);
+		RateLimiter.use(limiter);
+		long start = System.nanoTime();
+		Future<Void> download = download(dest1);
+		Thread.sleep(500);
+		assertTrue(!download.isDone());
+		// At 32 KB/s, this would take another 15 seconds.
+		limiter.setRate(0);
+		download.get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		assertArrayEquals(content, Files.readAllBytes(dest1.toPath()));
+		// NB: Generous, for loaded machines; still well below the throttled time.
+		assertTrue(seconds < 10, "Took " + seconds + " s");
+	}
+
+	private Future<Void> download(File dest) throws IOException {
+		URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip");
+		return Downloader.downloadWithProgress(url, dest, null);
+	}
+}
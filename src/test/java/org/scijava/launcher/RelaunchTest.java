@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link Relaunch}.
+ */
+public class RelaunchTest {
+
+	@Test
+	public void testCommand() {
+		Path java = Paths.get("jdk", "bin", "java");
+		List<String> jvmOptions = Arrays.asList("-Xmx2g",
+			"-Djava.class.path=old.jar", "-Dscijava.app.name=Fiji",
+			"-Dsun.java.launcher=SUN_STANDARD", "-XX:MaxPermSize=256m");
+		Properties properties = new Properties();
+		properties.setProperty("java.class.path", "app.jar");
+		properties.setProperty("java.version", "1.8.0_402");
+		properties.setProperty("scijava.app.java-root", "java");
+
+		List<String> command = Relaunch.command(java, jvmOptions, properties,
+			new String[] {"org.example.Main", "--flag", "a b"});
+		assertEquals(Arrays.asList(java.toString(),
+			"-XX:+IgnoreUnrecognizedVMOptions",
+			"-Xmx2g", "-Dscijava.app.name=Fiji", "-XX:MaxPermSize=256m",
+			"-Dscijava.app.java-root=java",
+			"-Dscijava.app.relaunched=true",
+			"-cp", "app.jar",
+			ClassLauncher.class.getName(), "org.example.Main", "--flag", "a b"),
+			command);
+	}
+
+	@Test
+	public void testRelaunch() throws Exception {
+		Path workDir = Files.createTempDirectory("scijava-relaunch-");
+		try {
+			String java = System.getProperty("java.home") +
+				File.separator + "bin" + File.separator + "java";
+			List<String> command = Arrays.asList(java,
+				"-Djava.awt.headless=true",
+				"-Dscijava.app.relaunch=true",
+				"-Dscijava.app.test=hello",
+				"-cp", System.getProperty("java.class.path"),
+				ClassLauncher.class.getName(), Child.class.getName(), "a", "b c");
+			Process p = new ProcessBuilder(command)
+				.directory(workDir.toFile()).redirectErrorStream(true).start();
+			p.getOutputStream().close();
+			List<String> lines = new ArrayList<>();
+			try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(p.getInputStream())))
+			{
+				String line;
+				while ((line = reader.readLine()) != null) lines.add(line);
+			}
+			assertEquals(3, p.waitFor(), "Output: " + lines);
+			assertEquals(Arrays.asList(
+				workDir.toRealPath().toString(), "hello", "[a, b c]"), lines);
+		}
+		finally {
+			Files.delete(workDir);
+		}
+	}
+
+	/** Relaunches itself once, then reports what the relaunched process got. */
+	public static class Child {
+		public static void main(String... args) throws IOException {
+			if (!Boolean.getBoolean(Relaunch.RELAUNCHED)) {
+				Relaunch.exec(Paths.get(System.getProperty("java.home")),
+					ClassLauncher.args());
+				return;
+			}
+			System.out.println(Paths.get(System.getProperty("user.dir")).toRealPath());
+			System.out.println(System.getProperty("scijava.app.test"));
+			System.out.println(Arrays.toString(args));
+			System.exit(3);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TaskExecutor}, and cancellation of downloads and unpacking.
+ */
+public class TaskExecutorTest {
+
+	@Test
+	public void testDaemonThreads() throws Exception {
+		assertTrue(TaskExecutor.submit(() -> Thread.currentThread().isDaemon()).get());
+	}
+
+	@Test
+	public void testCancelHook() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch released = new CountDownLatch(1);
+		Future<Void> task = TaskExecutor.submit(() -> {
+			TaskExecutor.onCancel(released::countDown);
+			started.countDown();
+			// Ignore interruption, as a blocking socket read would.
+			while (released.getCount() > 0) {
+				try {
+					released.await();
+				}
+				catch (InterruptedException exc) {
+					// Keep waiting.
+				}
+			}
+			return null;
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(task.cancel(true));
+		assertTrue(released.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCancelDownload() throws Exception {
+		// A server which trickles out its content, noting when the client leaves.
+		CountDownLatch clientLeft = new CountDownLatch(1);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}));
+		server.createContext("/", exchange -> {
+			byte[] chunk = new byte[1024];
+			exchange.sendResponseHeaders(200, 10_000 * chunk.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				for (int i = 0; i < 10_000; i++) {
+					out.write(chunk);
+					out.flush();
+					Thread.sleep(10);
+				}
+			}
+			catch (IOException | InterruptedException exc) {
+				clientLeft.countDown();
+			}
+		});
+		server.start();
+		File dest = Files.createTempFile("scijava-cancel-", ".bin").toFile();
+		try {
+			URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip");
+			CountDownLatch receiving = new CountDownLatch(1);
+			Future<Void> download = Downloader.downloadWithProgress(url, dest,
+				p -> receiving.countDown());
+			assertTrue(receiving.await(5, TimeUnit.SECONDS));
+			assertTrue(download.cancel(true));
+			assertTrue(clientLeft.await(5, TimeUnit.SECONDS));
+		}
+		finally {
+			server.stop(0);
+			dest.delete();
+		}
+	}
+
+	@Test
+	public void testCancelUnzip() throws Exception {
+		File archive = new File("src/test/resources/test-bundle.zip");
+		Path destPath = Files.createTempDirectory("scijava-app-launcher-");
+		destPath.toFile().deleteOnExit();
+
+		// Cancel unpacking from within, once the first file is reached.
+		AtomicReference<Future<Void>> unpack = new AtomicReference<>();
+		CountDownLatch submitted = new CountDownLatch(1);
+		unpack.set(Archives.unpack(archive, destPath.toFile(), entry -> {
+			if (!entry.endsWith("readme.txt")) return;
+			try {
+				submitted.await();
+			}
+			catch (InterruptedException exc) {
+				throw new IllegalStateException(exc);
+			}
+			unpack.get().cancel(true);
+		}, null, true));
+		submitted.countDown();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!unpack.get().isCancelled() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(unpack.get().isCancelled());
+		Thread.sleep(500);
+
+		// Unpacking stopped before the next file, leaving its journal to resume.
+		assertFalse(Files.exists(destPath.resolve("zipped-bundle").resolve("data.dat")));
+		assertTrue(Files.exists(destPath.resolve(UnpackJournal.JOURNAL_FILE)));
+	}
+}
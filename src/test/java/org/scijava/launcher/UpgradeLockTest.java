@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link UpgradeLock}, by upgrading Java from several processes at once.
+ */
+public class UpgradeLockTest {
+
+	private static final int PROCESSES = 4;
+
+	@Test
+	public void testConcurrentUpgrades() throws Exception {
+		byte[] archive = fakeJdkZip("jdk21.0.5", "21.0.5");
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			byte[] body;
+			if (path.endsWith(".zip")) {
+				try {
+					Thread.sleep(500); // Give the other processes time to pile up.
+				}
+				catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+				body = archive;
+			}
+			else {
+				String link = "http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip";
+				body = ("linux-x64=" + link + "\n").getBytes(StandardCharsets.UTF_8);
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+
+		Path javaRoot = Files.createTempDirectory("scijava-java-root-");
+		try {
+			String links = "http://127.0.0.1:" + server.getAddress().getPort() + "/links.txt";
+			List<Process> processes = new ArrayList<>();
+			for (int i = 0; i < PROCESSES; i++) {
+				processes.add(start(javaRoot, links));
+			}
+			List<String> results = new ArrayList<>();
+			for (Process p : processes) {
+				String output = read(p);
+				assertEquals(0, p.waitFor(), output);
+				results.add(output.trim());
+			}
+
+			// Exactly one process downloaded; all of them got the same Java.
+			Path expected = javaRoot.resolve("jdk21.0.5").toAbsolutePath();
+			assertEquals(1L, results.stream()
+				.filter(r -> r.equals("downloaded " + expected)).count(), results.toString());
+			assertEquals(PROCESSES - 1L, results.stream()
+				.filter(r -> r.equals("adopted " + expected)).count(), results.toString());
+			try (Stream<Path> files = Files.list(javaRoot)) {
+				assertEquals(Arrays.asList("jdk21.0.5"), files
+					.filter(JavaInstallation::isCandidate)
+					.map(f -> f.getFileName().toString())
+					.collect(Collectors.toList()));
+			}
+		}
+		finally {
+			server.stop(0);
+			deleteRecursively(javaRoot);
+		}
+	}
+
+	private static Process start(Path javaRoot, String links) throws IOException {
+		String java = System.getProperty("java.home") +
+			File.separator + "bin" + File.separator + "java";
+		return new ProcessBuilder(java,
+			"-Dscijava.app.java-root=" + javaRoot,
+			"-Dscijava.app.java-links=" + links,
+			"-Dscijava.app.java-platform=linux-x64",
+			"-Dscijava.app.java-version-recommended=21",
+			"-Dscijava.app.download-cache=",
+			"-Dscijava.app.background-download-rate=100",
+			"-cp", System.getProperty("java.class.path"),
+			Child.class.getName()).redirectErrorStream(true).start();
+	}
+
+	private static String read(Process p) throws IOException {
+		p.getOutputStream().close();
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(p.getInputStream())))
+		{
+			return reader.lines().collect(Collectors.joining("\n"));
+		}
+	}
+
+	private static byte[] fakeJdkZip(String dir, String version) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			out.putNextEntry(new ZipEntry(dir + "/"));
+			out.putNextEntry(new ZipEntry(dir + "/bin/"));
+			out.putNextEntry(new ZipEntry(dir + "/bin/java"));
+			out.putNextEntry(new ZipEntry(dir + "/release"));
+			out.write(("JAVA_VERSION=\"" + version + "\"\nOS_ARCH=\"x86_64\"\n")
+				.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				for (Path child : (Iterable<Path>) children::iterator) deleteRecursively(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+	/** Upgrades Java into the configured java-root, printing the result. */
+	public static class Child {
+		public static void main(String... args) throws IOException {
+			long backgroundRate = RateLimiter.background().rate();
+			Path root = Paths.get(System.getProperty("scijava.app.java-root"));
+			AtomicBoolean downloaded = new AtomicBoolean();
+			Path java = StagedUpgrade.install(root, (message, progress) -> {
+				if (message.startsWith("Downloading")) downloaded.set(true);
+			}, null);
+			// Waiting processes lift the background limit only while they wait.
+			if (RateLimiter.background().rate() != backgroundRate) {
+				System.out.println("background rate not restored");
+				System.exit(1);
+			}
+			System.out.println((downloaded.get() ? "downloaded " : "adopted ") + java);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * Launcher for SciJava applications.
+ * %%
+ * Copyright (C) 2007 - 2026 SciJava developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package org.scijava.launcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link Version} and {@link Versions}.
+ */
+public class VersionTest {
+
+	@Test
+	public void testCompare() {
+		assertTrue(Versions.compare("1.5", "1.5.1") < 0);
+		assertTrue(Versions.compare("1.10", "1.9") > 0);
+		assertTrue(Versions.compare("2.0.0", "2.0.0-beta-1") > 0);
+		assertTrue(Versions.compare("2.0.0-beta-1", "2.0.0-beta-2") < 0);
+		assertTrue(Versions.compare("1.8", "11") < 0);
+		assertTrue(Versions.compare("21.0.4", "21") > 0);
+		assertEquals(0, Versions.compare("1.0", "1.00"));
+		assertEquals(0, Versions.compare("", ""));
+	}
+
+	@Test
+	public void testParse() {
+		Version v = Version.parse("21.0.4-rc");
+		assertEquals(3, v.size());
+		assertEquals(21, v.number(0));
+		assertEquals(4, v.number(2));
+		assertEquals("-rc", v.qualifier(2));
+		assertEquals("21.0.4-rc", v.toString());
+		assertSame(v, Version.parse("21.0.4-rc"));
+		assertEquals(Version.parse("1.0"), Version.parse("1.00"));
+		assertEquals(Version.parse("1.0").hashCode(), Version.parse("1.00").hashCode());
+	}
+
+	@Test
+	public void testMaxAndSort() {
+		List<String> versions = new ArrayList<>(Arrays.asList(
+			"11", "1.8", "21.0.4", "17-ea", "21", "17", "21.0.4-rc"));
+		assertEquals("21.0.4", Versions.max(versions));
+		assertNull(Versions.max(new ArrayList<>()));
+		Versions.sort(versions);
+		assertEquals(Arrays.asList(
+			"1.8", "11", "17-ea", "17", "21", "21.0.4-rc", "21.0.4"), versions);
+	}
+}